@@ -0,0 +1,116 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Runs many gitlet commands in one JVM: java gitlet.Main batch [FILE]
+ *  reads one command per line from FILE, or from the standard input, and
+ *  runs each as Main would, printing the same output and error messages.
+ *
+ *  HEAD, the refs, the staging area and the stat cache are read once and
+ *  kept in memory: their writes are deferred in the ObjectCache and only
+ *  reach the disk at a line holding just "checkpoint" and after the last
+ *  command. Blobs, commits and the commit journal are still written as
+ *  they are made. If a command fails with an unexpected error, the batch
+ *  stops, the deferred writes since the last checkpoint are dropped, and
+ *  the commit journal is cut back to the commits it held then.
+ *
+ *  Arguments are separated by white space. An argument holding white
+ *  space is put in double quotes, inside which \" and \\ stand for a
+ *  quote and a backslash. Blank lines and lines starting with # are
+ *  ignored.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Batch {
+
+    /** Runs the commands read from IN. */
+    static void run(BufferedReader in)
+            throws IOException, ClassNotFoundException {
+        ObjectCache.defer();
+        Stats.defer();
+        int commits = journalSize();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] args = split(trimmed);
+                if (args == null) {
+                    System.out.println("Incorrect operands.");
+                } else if (args.length == 1 && args[0].equals("checkpoint")) {
+                    ObjectCache.checkpoint();
+                    commits = journalSize();
+                } else if (args[0].equals("batch")
+                           || args[0].equals("daemon")) {
+                    System.out.println("Incorrect operands.");
+                } else {
+                    Main.execute(args);
+                }
+            }
+            ObjectCache.checkpoint();
+        } catch (IOException | ClassNotFoundException
+                 | RuntimeException excp) {
+            ObjectCache.rollback();
+            if (commits >= 0) {
+                CommitList.truncate(commits);
+            }
+            throw excp;
+        } finally {
+            Stats.persist();
+        }
+    }
+
+    /** Returns the number of commits in the journal of the repository in
+     *  the current directory, or -1 if there is none. */
+    private static int journalSize() {
+        return CommitList.listFile().isFile() ? CommitList.read().size() : -1;
+    }
+
+    /** Returns the arguments on LINE, or null if a quote is not
+     *  closed. */
+    static String[] split(String line) {
+        List<String> args = new ArrayList<String>();
+        StringBuilder arg = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if (c == '\\' && i + 1 < line.length()
+                           && (line.charAt(i + 1) == '"'
+                               || line.charAt(i + 1) == '\\')) {
+                    i += 1;
+                    arg.append(line.charAt(i));
+                } else {
+                    arg.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (arg != null) {
+                    args.add(arg.toString());
+                    arg = null;
+                }
+            } else {
+                if (arg == null) {
+                    arg = new StringBuilder();
+                }
+                if (c == '"') {
+                    quoted = true;
+                } else {
+                    arg.append(c);
+                }
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        if (arg != null) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,120 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Stores the contents of working files as blobs in the ObjectStore,
+ *  streaming them through a fixed-size buffer so that heap use does not
+ *  depend on the size of the file. A file whose SHA-1 is not already known
+ *  is read once, being hashed as it is copied into the store.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class BlobStore {
+
+    /** Size of the buffer used to stream file contents. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Prefix of the names of blobs still being written. */
+    static final String TEMP_PREFIX = "tmp_";
+
+    /** Name of the counter of blob bytes not written because the blob
+     *  was already stored. */
+    static final String WRITES_AVOIDED = "blob-write-bytes-avoided";
+
+    /** Returns the object directory. */
+    static File objectsDir() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/objects");
+    }
+
+    /** Stores the contents of FILE as a blob unless that blob is already
+     *  in the object directory, and returns its SHA-1. FILE is read once,
+     *  hashing it as it is copied. */
+    static String store(File file) {
+        return ObjectStore.current().put(file);
+    }
+
+    /** As for store(FILE), where SHA is already known to be the SHA-1 of
+     *  the contents of FILE. */
+    static String store(File file, String sha) {
+        ObjectStore store = ObjectStore.current();
+        if (store.exists(sha)) {
+            Stats.add(WRITES_AVOIDED, file.length());
+            return sha;
+        }
+        return store.put(file);
+    }
+
+    /** Stores the contents of each working file in PATHS as for
+     *  store(File), hashing them through CACHE, and returns a map from each
+     *  path to its SHA-1. A file CACHE must hash is stored as it is hashed;
+     *  one it need not hash is stored only if its blob is missing. Files
+     *  are hashed and stored in parallel on a pool of one thread per
+     *  processor. */
+    static Map<String, String> storeAll(List<String> paths,
+                                        final StatCache cache) {
+        int threads = Math.max(1, Math.min(paths.size(),
+                Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> shas = new ArrayList<Future<String>>();
+            for (final String path : paths) {
+                shas.add(pool.submit(() -> {
+                    boolean[] stored = new boolean[1];
+                    String sha = cache.hash(path, f -> {
+                        stored[0] = true;
+                        return store(f);
+                    });
+                    return stored[0] ? sha : store(new File(path), sha);
+                }));
+            }
+            Map<String, String> result = new LinkedHashMap<String, String>();
+            for (int i = 0; i < paths.size(); i += 1) {
+                result.put(paths.get(i), shas.get(i).get());
+            }
+            return result;
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (ExecutionException excp) {
+            throw new IllegalArgumentException(excp.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Returns the SHA-1 of the contents of FILE, streaming them. */
+    static String hash(File file) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            try (FileChannel in = FileChannel.open(file.toPath(),
+                     StandardOpenOption.READ)) {
+                while (in.read(buf) >= 0) {
+                    buf.flip();
+                    md.update(buf);
+                    buf.clear();
+                }
+            }
+            return CommitIndex.toHex(md.digest());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/** Per-commit Bloom filters of the paths each commit changed relative to
+ *  its first parent, kept in .gitlet/changed-paths next to the commit graph
+ *  and aligned with the commit journal in the same way. A path-limited log
+ *  asks the filter first and only reads the trees of commits that may have
+ *  touched the path; a negative answer is always right.
+ *
+ *  Each filter is FILTER_BYTES long and sets HASHES bits per path, chosen
+ *  by double hashing of the SHA-1 of the path. A commit that changed more
+ *  than MAX_PATHS paths gets a filter with every bit set, which matches
+ *  every path.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class ChangedPaths {
+
+    /** Magic number at the start of the filter file ("GCPB"). */
+    static final int MAGIC = 0x47435042;
+
+    /** Version of the filter layout. */
+    static final int VERSION = 1;
+
+    /** Length of one filter. */
+    static final int FILTER_BYTES = 64;
+
+    /** Number of bits in one filter. */
+    static final int FILTER_BITS = FILTER_BYTES * 8;
+
+    /** Number of bits set for each path. */
+    static final int HASHES = 7;
+
+    /** Largest number of paths recorded in a filter before it saturates,
+     *  keeping at least ten bits per path. */
+    static final int MAX_PATHS = FILTER_BITS / 10;
+
+    /** Name of the counter of commits a path-limited log skipped without
+     *  reading them. */
+    static final String SKIPPED = "changed-paths-commits-skipped";
+
+    /** Length of the header: magic, version and filter size. */
+    static final int HEADER_BYTES = 12;
+
+    /** The mapped filter file. */
+    private final MappedByteBuffer _buf;
+
+    /** Filters over the mapped filter file BUF. */
+    private ChangedPaths(MappedByteBuffer buf) {
+        _buf = buf;
+    }
+
+    /** Returns the filter file. */
+    static File filterFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/changed-paths");
+    }
+
+    /** Appends a filter for every commit in the journal that does not have
+     *  one yet and returns the up-to-date filters. */
+    static ChangedPaths update() {
+        File file = filterFile();
+        List<String> commits = CommitList.read();
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (out.size() < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(FILTER_BYTES);
+                header.flip();
+                out.truncate(0);
+                out.write(header, 0);
+            }
+            int size = (int) ((out.size() - HEADER_BYTES) / FILTER_BYTES);
+            if (size < commits.size()) {
+                final ByteBuffer filters = ByteBuffer.allocate(
+                        (commits.size() - size) * FILTER_BYTES);
+                CommitScan.forEach(commits.subList(size, commits.size()),
+                    (i, c) -> filters.put(i * FILTER_BYTES,
+                            filter(changed(c))));
+                long at = HEADER_BYTES + (long) size * FILTER_BYTES;
+                while (filters.hasRemaining()) {
+                    at += out.write(filters, at);
+                }
+                out.force(true);
+            }
+            return new ChangedPaths(out.map(FileChannel.MapMode.READ_ONLY,
+                    0, out.size()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Drops the filters of all but the first COUNT commits. */
+    static void truncate(int count) {
+        CommitList.truncate(filterFile(), HEADER_BYTES, FILTER_BYTES, count);
+    }
+
+    /** Returns the paths changed by the commit C relative to its first
+     *  parent, or every path of an initial commit. */
+    private static Set<String> changed(Commit c) {
+        if (c.getParent().isEmpty()) {
+            return Tree.diff(null, c.getTree());
+        }
+        Commit parent = Commit.read(c.getParent());
+        return Tree.diff(parent.getTree(), c.getTree());
+    }
+
+    /** Returns the filter holding PATHS. */
+    static byte[] filter(Set<String> paths) {
+        byte[] bits = new byte[FILTER_BYTES];
+        if (paths.size() > MAX_PATHS) {
+            Arrays.fill(bits, (byte) 0xff);
+            return bits;
+        }
+        for (String path : paths) {
+            for (int bit : bits(path)) {
+                bits[bit >>> 3] |= 1 << (bit & 7);
+            }
+        }
+        return bits;
+    }
+
+    /** Returns the bit positions of PATH. */
+    private static int[] bits(String path) {
+        ByteBuffer hash = ByteBuffer.wrap(
+                CommitIndex.toRaw(Utils.sha1(path)));
+        int h1 = hash.getInt(0);
+        int h2 = hash.getInt(4) | 1;
+        int[] result = new int[HASHES];
+        for (int k = 0; k < HASHES; k += 1) {
+            result[k] = Math.floorMod(h1 + k * h2, FILTER_BITS);
+        }
+        return result;
+    }
+
+    /** Returns false if the commit at journal position I certainly did not
+     *  change PATH, and true if it may have. */
+    boolean mayHaveChanged(int i, String path) {
+        int base = HEADER_BYTES + i * FILTER_BYTES;
+        for (int bit : bits(path)) {
+            if ((_buf.get(base + (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the SHA-1 IDs of the commits on the first-parent history
+     *  of the commit HEAD, newest first, that changed PATH relative to their
+     *  first parent. The history is walked only as far as the iterator is
+     *  advanced, and only commits the filters cannot rule out are read. */
+    static Iterator<String> history(String head, final String path) {
+        final ChangedPaths filters = update();
+        final CommitGraph graph = CommitGraph.update();
+        final List<String> commits = CommitList.read();
+        final int start = CommitIndex.position(head);
+        return new Iterator<String>() {
+            /** Journal position of the next commit to examine. */
+            private int _next = start;
+
+            /** The next ID to return, or null if not found yet. */
+            private String _found;
+
+            @Override
+            public boolean hasNext() {
+                while (_found == null && _next >= 0) {
+                    int i = _next;
+                    _next = graph.parent1(i);
+                    if (!filters.mayHaveChanged(i, path)) {
+                        Stats.add(SKIPPED, 1);
+                    } else if (changes(commits.get(i), _next >= 0, path)) {
+                        _found = commits.get(i);
+                    }
+                }
+                return _found != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String result = _found;
+                _found = null;
+                return result;
+            }
+        };
+    }
+
+    /** Returns true if the commit SHA, which has a first parent iff
+     *  HASPARENT, changed PATH relative to that parent. */
+    private static boolean changes(String sha, boolean hasParent,
+                                   String path) {
+        Commit c = Commit.read(sha);
+        String blob = Tree.lookup(c.getTree(), path);
+        String parentBlob = null;
+        if (hasParent) {
+            Commit parent = Commit.read(c.getParent());
+            parentBlob = Tree.lookup(parent.getTree(), path);
+        }
+        return blob == null ? parentBlob != null : !blob.equals(parentBlob);
+    }
+}
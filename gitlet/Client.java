@@ -0,0 +1,55 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/** Thin client for the gitlet daemon: java gitlet.Client ARGS sends ARGS
+ *  to the daemon of the repository in the current directory and copies its
+ *  output to the standard output as it arrives. If no daemon is running,
+ *  the command is run in this JVM as by java gitlet.Main ARGS.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+public class Client {
+
+    /** Runs the gitlet command ARGS, through the daemon if there is one. */
+    public static void main(String... args)
+            throws IOException, ClassNotFoundException {
+        String dir = System.getProperty("user.dir");
+        File socket = Daemon.socketFile(dir);
+        SocketChannel channel = null;
+        if (socket.exists()) {
+            try {
+                channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                channel.connect(UnixDomainSocketAddress.of(socket.toPath()));
+            } catch (IOException excp) {
+                if (channel != null) {
+                    channel.close();
+                }
+                channel = null;
+            }
+        }
+        if (channel == null) {
+            Main.main(args);
+            return;
+        }
+        try (SocketChannel daemon = channel) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(daemon)));
+            out.writeInt(Daemon.VERSION);
+            Daemon.writeString(out, dir);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                Daemon.writeString(out, arg);
+            }
+            out.flush();
+            daemon.shutdownOutput();
+            Daemon.copy(Channels.newInputStream(daemon), System.out);
+        }
+    }
+}
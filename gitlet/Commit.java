@@ -1,6 +1,7 @@
 package gitlet;
 import java.io.File;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.lang.System;
@@ -8,8 +9,18 @@ import java.lang.System;
 /** @authors: Judy Moon, Jiaming Yuan, Maoqi Zhang **/
 
 public class Commit implements Serializable{
-    /** The committed files in this commit. */
-    HashMap<String, String> hashMapblobs = new HashMap<String, String>();
+    /** Pinned to the value computed for the original class, so that commits
+     *  serialized by earlier versions can still be read. */
+    private static final long serialVersionUID = -739024135525272690L;
+
+    /** The committed files in this commit. Commits made by earlier
+     *  versions store their files here; newer ones point to a root tree
+     *  and fill this in from it on first use (see getBlobs). */
+    HashMap<String, String> hashMapblobs;
+
+    /** SHA-1 ID of the root tree of this commit, or null for commits made
+     *  before trees existed. */
+    private String tree;
 
     /** SHA-ID code of the commit. */
     private final String sha;
@@ -31,17 +42,17 @@ public class Commit implements Serializable{
     Commit(String commitMessage) {
         File headFile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headFile, Commit.class);
+        Commit head = Commit.read(headFile);
 
         String parentSHAID = head.sha;
 
         this.commitMessage = commitMessage;
-        this.hashMapblobs = getHashMap();
+        this.tree = newTree(head);
 
         this.parent = parentSHAID;
         this._time = new Date();
         this.sha = Utils.sha1(commitMessage, _time.toString(),
-                parent, hashMapblobs.toString());
+                parent, tree);
     }
 
     /** Initializes the first commit in a gitlet directory once the init command is called. */
@@ -49,10 +60,51 @@ public class Commit implements Serializable{
         this.commitMessage = "initial commit";
         this.parent = "";
         this._time = new Date(0);
+        this.tree = Tree.EMPTY;
         this.sha = gitlet.Utils.sha1(commitMessage,
                 _time.toString(),
                 parent,
-                hashMapblobs.toString());
+                tree);
+    }
+
+    /** A commit with the given fields, as decoded by CommitCodec. */
+    Commit(String sha, String commitMessage, String parent,
+           String mergeParent, Date time, String tree,
+           HashMap<String, String> blobs) {
+        this.sha = sha;
+        this.commitMessage = commitMessage;
+        this.parent = parent;
+        this.mergeParent = mergeParent;
+        this._time = time;
+        this.tree = tree;
+        this.hashMapblobs = blobs;
+    }
+
+    /** Return the commit stored in FILE, in either the binary commit
+     *  format or the serialized format of earlier versions. Decoded
+     *  commits are kept in the ObjectCache. */
+    static Commit read(File file) {
+        return ObjectCache.read(file, Commit.class,
+            f -> CommitCodec.decode(Utils.readContents(f)));
+    }
+
+    /** Return the commit with SHA-1 ID SHA in the ObjectStore. */
+    static Commit read(String sha) {
+        return ObjectCache.readObject(sha, Commit.class,
+            s -> CommitCodec.decode(ObjectStore.current().get(s)));
+    }
+
+    /** Store this commit in the ObjectStore under its SHA-1 ID. */
+    void store() {
+        ObjectStore.current().put(getSha(), CommitCodec.encode(this));
+        ObjectCache.putObject(getSha(), this);
+    }
+
+    /** Write this commit to FILE in the binary commit format. */
+    void write(File file) {
+        ObjectCache.write(file, this,
+            f -> LooseObjectStore.writeAtomically(f,
+                     CommitCodec.encode(this)));
     }
 
     /**
@@ -91,21 +143,69 @@ public class Commit implements Serializable{
         return this._head;
     }
 
-    HashMap<String, String> getHashMap() {
-        File headFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headFile, Commit.class);
+    /**
+     * Return the SHA-1 ID of the root tree of this commit, storing the
+     * trees of a commit made before trees existed the first time.
+     * @return tree
+     */
+    String getTree() {
+        if (tree == null) {
+            tree = Tree.build(hashMapblobs);
+        }
+        return tree;
+    }
 
-        HashMap<String, String> blobMap = head.hashMapblobs;
-        File file = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(file, Stage.class);
-        blobMap.putAll(staged._stagingMap);
+    /** Return true if this commit points to a root tree. */
+    boolean hasTree() {
+        return tree != null;
+    }
+
+    /**
+     * Return the committed files of this commit, mapping each path to the
+     * SHA-1 ID of its blob.
+     * @return hashMapblobs
+     */
+    HashMap<String, String> getBlobs() {
+        if (hashMapblobs == null) {
+            hashMapblobs = Tree.flatten(tree);
+        }
+        return hashMapblobs;
+    }
 
-        for (String filename : staged._stagingRemove) {
-            blobMap.remove(filename);
+    /** Return the blob SHA-1 ID of the file PATH in this commit, or null
+     *  if it does not track PATH. Only the trees along PATH are read. */
+    String getBlob(String path) {
+        if (hashMapblobs != null) {
+            return hashMapblobs.get(path);
         }
-        return blobMap;
+        return Tree.lookup(tree, path);
+    }
+
+    /** Return the committed files of this commit among PATHS, mapping each
+     *  to the SHA-1 ID of its blob. Only the trees along PATHS are read. */
+    HashMap<String, String> getBlobs(Collection<String> paths) {
+        if (hashMapblobs == null) {
+            return Tree.lookup(tree, paths);
+        }
+        HashMap<String, String> blobs = new HashMap<String, String>();
+        for (String path : paths) {
+            String blob = hashMapblobs.get(path);
+            if (blob != null) {
+                blobs.put(path, blob);
+            }
+        }
+        return blobs;
+    }
+
+    /** Return the root tree for a child of HEAD: HEAD's tree with the
+     *  staged files added and removed. Only the trees along changed paths
+     *  are rewritten. */
+    private static String newTree(Commit head) {
+        File file = new File(System.getProperty("user.dir")
+                + "/.gitlet/staged");
+        Stage staged = Stage.read(file);
+        return Tree.update(head.getTree(), staged._stagingMap,
+                staged._stagingRemove);
     }
 
     String getMergeParent(){
@@ -0,0 +1,202 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/** Hand-written binary encoding of Commit objects.
+ *
+ *  An encoded commit is the magic number, a varint format version, a flags
+ *  byte saying which parents are present, the raw 20-byte SHA-1 of the
+ *  commit and of each present parent, the time as a varint count of
+ *  milliseconds, and the message as a varint length plus UTF-8 bytes.
+ *  Then comes the raw SHA-1 of the root tree or, for commits made before
+ *  trees existed, a varint count of file entries. Entries are sorted by
+ *  file name, and each is a varint length plus UTF-8 name followed by the
+ *  raw blob SHA-1.
+ *
+ *  Commits written by earlier versions of gitlet with Java serialization
+ *  are recognized by their stream header and still decoded.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class CommitCodec {
+
+    /** Magic number at the start of an encoded commit ("GCMT"). */
+    static final int MAGIC = 0x47434d54;
+
+    /** Current version of the encoding. */
+    static final int VERSION = 2;
+
+    /** Flag set when the commit has a first parent. */
+    private static final int HAS_PARENT = 1;
+
+    /** Flag set when the commit has a merge parent. */
+    private static final int HAS_MERGE_PARENT = 2;
+
+    /** Flag set when the commit points to a root tree rather than listing
+     *  its files. */
+    private static final int HAS_TREE = 4;
+
+    /** First two bytes of a Java serialization stream. */
+    private static final int JAVA_STREAM_MAGIC = 0xaced;
+
+    /** Returns the encoding of COMMIT. */
+    static byte[] encode(Commit commit) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeInt(out, MAGIC);
+        writeVarint(out, VERSION);
+
+        String parent = commit.getParent();
+        String mergeParent = commit.getMergeParent();
+        int flags = 0;
+        if (parent != null && !parent.isEmpty()) {
+            flags |= HAS_PARENT;
+        }
+        if (mergeParent != null) {
+            flags |= HAS_MERGE_PARENT;
+        }
+        if (commit.hasTree()) {
+            flags |= HAS_TREE;
+        }
+        out.write(flags);
+        writeSha(out, commit.getSha());
+        if ((flags & HAS_PARENT) != 0) {
+            writeSha(out, parent);
+        }
+        if ((flags & HAS_MERGE_PARENT) != 0) {
+            writeSha(out, mergeParent);
+        }
+        writeVarint(out, commit.getTime().getTime());
+        writeString(out, commit.getMessage());
+        if ((flags & HAS_TREE) != 0) {
+            writeSha(out, commit.getTree());
+            return out.toByteArray();
+        }
+
+        List<String> names = new ArrayList<>(commit.hashMapblobs.keySet());
+        Collections.sort(names);
+        writeVarint(out, names.size());
+        for (String name : names) {
+            writeString(out, name);
+            writeSha(out, commit.hashMapblobs.get(name));
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the commit encoded in DATA, which may be either this
+     *  encoding or a serialized Commit. */
+    static Commit decode(byte[] data) {
+        if (data.length >= 2
+                && ((data[0] & 0xff) << 8 | (data[1] & 0xff))
+                    == JAVA_STREAM_MAGIC) {
+            return decodeSerialized(data);
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (data.length < 4 || in.getInt() != MAGIC) {
+            throw Utils.error("Corrupt commit object.");
+        }
+        long version = readVarint(in);
+        if (version < 1 || version > VERSION) {
+            throw Utils.error("Unknown commit format version %d.", version);
+        }
+        int flags = in.get();
+        String sha = readSha(in);
+        String parent = (flags & HAS_PARENT) != 0 ? readSha(in) : "";
+        String mergeParent = (flags & HAS_MERGE_PARENT) != 0
+            ? readSha(in) : null;
+        Date time = new Date(readVarint(in));
+        String message = readString(in);
+        if ((flags & HAS_TREE) != 0) {
+            return new Commit(sha, message, parent, mergeParent, time,
+                    readSha(in), null);
+        }
+
+        int count = (int) readVarint(in);
+        HashMap<String, String> blobs = new HashMap<String, String>(
+                Math.max(16, count * 4 / 3 + 1));
+        for (int i = 0; i < count; i += 1) {
+            String name = readString(in);
+            blobs.put(name, readSha(in));
+        }
+        return new Commit(sha, message, parent, mergeParent, time, null,
+                blobs);
+    }
+
+    /** Returns the Commit serialized with Java serialization in DATA. */
+    private static Commit decodeSerialized(byte[] data) {
+        try (ObjectInputStream in =
+                 new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return (Commit) in.readObject();
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the big-endian int VAL to OUT. */
+    private static void writeInt(ByteArrayOutputStream out, int val) {
+        out.write(val >>> 24);
+        out.write(val >>> 16);
+        out.write(val >>> 8);
+        out.write(val);
+    }
+
+    /** Writes the non-negative VAL to OUT, seven bits per byte, low
+     *  bits first, with the high bit set on all but the last byte. */
+    static void writeVarint(ByteArrayOutputStream out, long val) {
+        while ((val & ~0x7fL) != 0) {
+            out.write((int) (val & 0x7f) | 0x80);
+            val >>>= 7;
+        }
+        out.write((int) val);
+    }
+
+    /** Reads a varint written by writeVarint from IN. */
+    static long readVarint(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw Utils.error("Corrupt varint.");
+    }
+
+    /** Writes S to OUT as a varint length and its UTF-8 bytes. */
+    static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    /** Reads a string written by writeString from IN. */
+    static String readString(ByteBuffer in) {
+        int len = (int) readVarint(in);
+        String s = new String(in.array(), in.arrayOffset() + in.position(),
+                len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return s;
+    }
+
+    /** Writes the hex SHA-1 ID SHA to OUT as 20 raw bytes. */
+    static void writeSha(ByteArrayOutputStream out, String sha) {
+        out.write(CommitIndex.toRaw(sha), 0, CommitIndex.SHA_BYTES);
+    }
+
+    /** Reads a raw SHA-1 ID from IN and returns it in hex. */
+    static String readSha(ByteBuffer in) {
+        byte[] raw = new byte[CommitIndex.SHA_BYTES];
+        in.get(raw);
+        return CommitIndex.toHex(raw);
+    }
+}
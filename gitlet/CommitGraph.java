@@ -0,0 +1,327 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** The shape of the commit history, kept in .gitlet/commit-graph so that
+ *  ancestry questions can be answered without reading any commit.
+ *
+ *  The file is a header followed by one fixed-size record per commit, in
+ *  the same order as the commit journal, so record I describes the commit
+ *  at journal position I. A record holds the journal positions of the
+ *  commit's first and merge parents (-1 if absent) and its generation
+ *  number: 1 for the initial commit and otherwise one more than the
+ *  largest generation of its parents. Every ancestor of a commit has a
+ *  smaller generation than the commit itself.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class CommitGraph {
+
+    /** Magic number at the start of the graph file ("GCGR"). */
+    static final int MAGIC = 0x47434752;
+
+    /** Version of the graph layout. */
+    static final int VERSION = 1;
+
+    /** Length of one record: two parent positions and a generation. */
+    static final int RECORD_BYTES = 12;
+
+    /** Length of the header: magic, version and record size. */
+    static final int HEADER_BYTES = 12;
+
+    /** Paint flag: reachable from the first commit. */
+    private static final int PARENT1 = 1;
+
+    /** Paint flag: reachable from the second commit. */
+    private static final int PARENT2 = 2;
+
+    /** Paint flag: reachable from a common ancestor. */
+    private static final int STALE = 4;
+
+    /** Paint flag: recorded as a merge base. */
+    private static final int RESULT = 8;
+
+    /** The mapped graph file. */
+    private final MappedByteBuffer _buf;
+
+    /** Number of records. */
+    private final int _size;
+
+    /** A graph over the mapped graph file BUF. */
+    private CommitGraph(MappedByteBuffer buf) {
+        _buf = buf;
+        _size = (buf.capacity() - HEADER_BYTES) / RECORD_BYTES;
+    }
+
+    /** Returns the graph file. */
+    static File graphFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/commit-graph");
+    }
+
+    /** Appends a record for every commit in the journal that the graph
+     *  does not describe yet, reading only those commits, and returns the
+     *  up-to-date graph. This covers the commit just made as well as
+     *  repositories created before the graph existed. */
+    static CommitGraph update() {
+        File file = graphFile();
+        List<String> commits = CommitList.read();
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (out.size() < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES);
+                header.flip();
+                out.truncate(0);
+                out.write(header, 0);
+            }
+            int size = (int) ((out.size() - HEADER_BYTES) / RECORD_BYTES);
+            if (size < commits.size()) {
+                ByteBuffer recs = ByteBuffer.allocate(
+                        (commits.size() - size) * RECORD_BYTES);
+                Iterator<Commit> added = CommitScan.ordered(
+                        commits.subList(size, commits.size()));
+                while (added.hasNext()) {
+                    Commit c = added.next();
+                    int p1 = parentPosition(c.getParent());
+                    int p2 = parentPosition(c.getMergeParent());
+                    int gen = 1 + Math.max(generation(out, recs, size, p1),
+                            generation(out, recs, size, p2));
+                    recs.putInt(p1).putInt(p2).putInt(gen);
+                }
+                recs.flip();
+                long at = HEADER_BYTES + (long) size * RECORD_BYTES;
+                while (recs.hasRemaining()) {
+                    at += out.write(recs, at);
+                }
+                out.force(true);
+            }
+            return new CommitGraph(out.map(FileChannel.MapMode.READ_ONLY,
+                    0, out.size()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Drops the records of all but the first COUNT commits. */
+    static void truncate(int count) {
+        CommitList.truncate(graphFile(), HEADER_BYTES, RECORD_BYTES, count);
+    }
+
+    /** Returns the generation of commit I, or 0 if I is -1, reading it from
+     *  GRAPH if I is below SIZE and from the pending records RECS, which
+     *  start at position SIZE, otherwise. */
+    private static int generation(FileChannel graph, ByteBuffer recs,
+                                  int size, int i) throws IOException {
+        if (i < 0) {
+            return 0;
+        } else if (i >= size) {
+            return recs.getInt((i - size) * RECORD_BYTES + 8);
+        }
+        ByteBuffer gen = ByteBuffer.allocate(4);
+        long at = HEADER_BYTES + (long) i * RECORD_BYTES + 8;
+        graph.read(gen, at);
+        return gen.getInt(0);
+    }
+
+    /** Returns the journal position of the parent SHA, which is null or
+     *  empty if there is no such parent. */
+    private static int parentPosition(String sha) {
+        if (sha == null || sha.isEmpty()) {
+            return -1;
+        }
+        int pos = CommitIndex.position(sha);
+        if (pos < 0) {
+            throw Utils.error("Commit %s is missing from the journal.", sha);
+        }
+        return pos;
+    }
+
+    /** Returns the journal position of the first parent of commit I, or
+     *  -1. */
+    int parent1(int i) {
+        return _buf.getInt(HEADER_BYTES + i * RECORD_BYTES);
+    }
+
+    /** Returns the journal position of the merge parent of commit I, or
+     *  -1. */
+    int parent2(int i) {
+        return _buf.getInt(HEADER_BYTES + i * RECORD_BYTES + 4);
+    }
+
+    /** Returns the generation number of commit I. */
+    int generation(int i) {
+        return _buf.getInt(HEADER_BYTES + i * RECORD_BYTES + 8);
+    }
+
+    /** Returns the number of commits in the graph. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns the split point for merging the commit OTHER into the
+     *  commit CURR: a latest common ancestor of the two, that is, one that
+     *  is not an ancestor of another common ancestor. If there are several,
+     *  as after criss-cross merges, the one fewest parent links away from
+     *  CURR is chosen, breaking ties by the higher generation number.
+     *  Returns "" if the commits have no common ancestor. */
+    static String splitPoint(String curr, String other) {
+        CommitGraph graph = update();
+        int c = CommitIndex.position(curr);
+        int o = CommitIndex.position(other);
+        List<Integer> bases = graph.mergeBases(c, o);
+        if (bases.isEmpty()) {
+            return "";
+        }
+        int[] dist = graph.distancesFrom(c, bases);
+        int best = bases.get(0);
+        for (int base : bases) {
+            if (dist[base] < dist[best]
+                    || (dist[base] == dist[best]
+                        && graph.generation(base) > graph.generation(best))) {
+                best = base;
+            }
+        }
+        return CommitList.read().get(best);
+    }
+
+    /** Returns the journal positions of the latest common ancestors of
+     *  the commits A and B, found by painting down from both in order of
+     *  decreasing generation number and stopping once every queued commit
+     *  is known to lie below a common ancestor. */
+    List<Integer> mergeBases(int a, int b) {
+        final byte[] flags = new byte[_size];
+        final boolean[] queued = new boolean[_size];
+        PriorityQueue<Integer> queue = new PriorityQueue<Integer>(
+            new Comparator<Integer>() {
+                @Override
+                public int compare(Integer x, Integer y) {
+                    int c = Integer.compare(generation(y), generation(x));
+                    return c != 0 ? c : Integer.compare(y, x);
+                }
+            });
+        List<Integer> results = new ArrayList<Integer>();
+        int nonStale = 0;
+
+        flags[a] |= PARENT1;
+        flags[b] |= PARENT2;
+        queue.add(a);
+        queued[a] = true;
+        nonStale += 1;
+        if (b != a) {
+            queue.add(b);
+            queued[b] = true;
+            nonStale += 1;
+        }
+
+        while (nonStale > 0) {
+            int i = queue.poll();
+            queued[i] = false;
+            int f = flags[i] & (PARENT1 | PARENT2 | STALE);
+            if ((f & STALE) == 0) {
+                nonStale -= 1;
+            }
+            if ((f & (PARENT1 | PARENT2)) == (PARENT1 | PARENT2)) {
+                if ((flags[i] & RESULT) == 0 && (f & STALE) == 0) {
+                    flags[i] |= RESULT;
+                    results.add(i);
+                }
+                f |= STALE;
+            }
+            for (int p : new int[] {parent1(i), parent2(i)}) {
+                if (p < 0 || (flags[p] & f) == f) {
+                    continue;
+                }
+                boolean wasStale = (flags[p] & STALE) != 0;
+                flags[p] |= f;
+                if (!queued[p]) {
+                    queue.add(p);
+                    queued[p] = true;
+                    if ((flags[p] & STALE) == 0) {
+                        nonStale += 1;
+                    }
+                } else if (!wasStale && (flags[p] & STALE) != 0) {
+                    nonStale -= 1;
+                }
+            }
+        }
+
+        List<Integer> latest = new ArrayList<Integer>();
+        for (int x : results) {
+            boolean redundant = false;
+            for (int y : results) {
+                if (x != y && isAncestor(x, y)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                latest.add(x);
+            }
+        }
+        return latest;
+    }
+
+    /** Returns true if commit X is an ancestor of commit Y, walking down
+     *  from Y no further than the generation of X. */
+    boolean isAncestor(int x, int y) {
+        int gen = generation(x);
+        boolean[] seen = new boolean[_size];
+        ArrayDeque<Integer> stack = new ArrayDeque<Integer>();
+        stack.push(y);
+        while (!stack.isEmpty()) {
+            int i = stack.pop();
+            if (i == x) {
+                return true;
+            }
+            if (seen[i] || generation(i) <= gen) {
+                continue;
+            }
+            seen[i] = true;
+            for (int p : new int[] {parent1(i), parent2(i)}) {
+                if (p >= 0 && !seen[p]) {
+                    stack.push(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Returns the number of parent links on a shortest path from commit
+     *  START to each commit, or Integer.MAX_VALUE where there is none. The
+     *  walk stops once every commit in TARGETS has been reached, so only
+     *  their distances are certain to be filled in. */
+    int[] distancesFrom(int start, List<Integer> targets) {
+        int[] dist = new int[_size];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        int remaining = targets.size();
+        dist[start] = 0;
+        queue.add(start);
+        while (!queue.isEmpty() && remaining > 0) {
+            int i = queue.remove();
+            if (targets.contains(i)) {
+                remaining -= 1;
+            }
+            for (int p : new int[] {parent1(i), parent2(i)}) {
+                if (p >= 0 && dist[p] == Integer.MAX_VALUE) {
+                    dist[p] = dist[i] + 1;
+                    queue.add(p);
+                }
+            }
+        }
+        return dist;
+    }
+}
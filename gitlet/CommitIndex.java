@@ -0,0 +1,318 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/** A sorted, on-disk index of every commit SHA-1 ID, used to resolve
+ *  abbreviated commit IDs in O(log n).
+ *
+ *  The layout follows a pack index: a header, a 256-entry fanout table
+ *  whose entry B holds the number of commits whose first byte is <= B,
+ *  and then one fixed-size record per commit, sorted by raw SHA-1 bytes.
+ *  Each record holds the 20-byte SHA-1 followed by the commit's position
+ *  in the commit list.
+ *
+ *  The index covers a prefix of the commit journal; the header records how
+ *  many journal entries that is. Commits appended since then are searched
+ *  linearly, and the index is rebuilt once more than TAIL_LIMIT of them
+ *  have piled up, so committing stays cheap on long histories.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class CommitIndex {
+
+    /** Magic number at the start of the index file ("GCIX"). */
+    static final int MAGIC = 0x47434958;
+
+    /** Version of the index layout. */
+    static final int VERSION = 2;
+
+    /** Length of a raw SHA-1 ID in bytes. */
+    static final int SHA_BYTES = Utils.UID_LENGTH / 2;
+
+    /** Length of one record: raw SHA-1 and its commit list position. */
+    static final int RECORD_BYTES = SHA_BYTES + 4;
+
+    /** Length of the header: magic, version, record count and number of
+     *  journal entries covered. */
+    static final int HEADER_BYTES = 16;
+
+    /** Largest number of unindexed journal entries allowed before the
+     *  index is rebuilt. */
+    static final int TAIL_LIMIT = 256;
+
+    /** Offset of the first record. */
+    static final int RECORDS_START = HEADER_BYTES + 256 * 4;
+
+    /** Returns the index file of the repository in the current directory. */
+    static File indexFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/commit-index");
+    }
+
+    /** Rewrites the index so that it holds exactly the commits in
+     *  COMMITLIST, recording each one's position in that list. */
+    static void rebuild(List<String> commitList) {
+        byte[][] records = new byte[commitList.size()][];
+        for (int i = 0; i < records.length; i += 1) {
+            records[i] = record(commitList.get(i), i);
+        }
+        write(records);
+    }
+
+    /** Brings the index up to date with the commit journal if more than
+     *  TAIL_LIMIT commits have been made since it was last built, or if it
+     *  is missing or was written by another version. */
+    static void update() {
+        File index = indexFile();
+        List<String> commits = CommitList.read();
+        if (index.length() >= HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.wrap(readHeader(index));
+            if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && commits.size() - header.getInt(12) <= TAIL_LIMIT) {
+                return;
+            }
+        }
+        rebuild(commits);
+    }
+
+    /** Rebuilds the index from the commit journal if it covers more than
+     *  its first COUNT commits, which are all the journal now holds. */
+    static void truncate(int count) {
+        File index = indexFile();
+        if (index.length() >= HEADER_BYTES
+                && ByteBuffer.wrap(readHeader(index)).getInt(12) > count) {
+            rebuild(CommitList.read());
+        }
+    }
+
+    /** Returns the full SHA-1 ID of the commit whose ID starts with PREFIX,
+     *  or null if there is none.  Throws a GitletException if more than
+     *  one commit matches. */
+    static String resolve(String prefix) {
+        prefix = prefix.toLowerCase();
+        if (prefix.isEmpty() || prefix.length() > Utils.UID_LENGTH
+                || !prefix.matches("[0-9a-f]+")) {
+            return null;
+        }
+        update();
+        String match = null;
+        int covered;
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile(), "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                throw Utils.error("Corrupt commit index.");
+            }
+            int first = Integer.parseInt(prefix.substring(0, 1), 16);
+            int lo;
+            int hi;
+            if (prefix.length() == 1) {
+                lo = fanout(buf, (first << 4) - 1);
+                hi = fanout(buf, (first << 4) | 0xf);
+            } else {
+                int b = Integer.parseInt(prefix.substring(0, 2), 16);
+                lo = fanout(buf, b - 1);
+                hi = fanout(buf, b);
+            }
+
+            byte[] key = prefixBytes(prefix.length() % 2 == 0 ? prefix
+                    : prefix + "0");
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (compareRecord(buf, mid, key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int count = buf.getInt(8);
+            for (int i = lo; i < count; i += 1) {
+                String sha = shaAt(buf, i);
+                if (!sha.startsWith(prefix)) {
+                    break;
+                }
+                if (match != null) {
+                    throw Utils.error("Commit id %s is ambiguous.", prefix);
+                }
+                match = sha;
+            }
+            covered = buf.getInt(12);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        List<String> commits = CommitList.read();
+        for (String sha : commits.subList(covered, commits.size())) {
+            if (sha.startsWith(prefix)) {
+                if (match != null) {
+                    throw Utils.error("Commit id %s is ambiguous.", prefix);
+                }
+                match = sha;
+            }
+        }
+        return match;
+    }
+
+    /** Returns the position in the commit journal of the commit whose full
+     *  SHA-1 ID is SHA, or -1 if there is no such commit. */
+    static int position(String sha) {
+        update();
+        byte[] key = toRaw(sha);
+        int covered;
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile(), "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            int b = key[0] & 0xff;
+            int lo = fanout(buf, b - 1);
+            int hi = fanout(buf, b) - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compareRecord(buf, mid, key);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return buf.getInt(RECORDS_START + mid * RECORD_BYTES
+                            + SHA_BYTES);
+                }
+            }
+            covered = buf.getInt(12);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        List<String> commits = CommitList.read();
+        for (int i = covered; i < commits.size(); i += 1) {
+            if (commits.get(i).equals(sha)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the number of records whose first byte is <= B, where B
+     *  may be -1. */
+    private static int fanout(ByteBuffer buf, int b) {
+        if (b < 0) {
+            return 0;
+        }
+        return buf.getInt(HEADER_BYTES + 4 * b);
+    }
+
+    /** Compares the SHA-1 of record I of BUF with the raw bytes KEY,
+     *  looking only at the first KEY.length bytes. */
+    private static int compareRecord(ByteBuffer buf, int i, byte[] key) {
+        int base = RECORDS_START + i * RECORD_BYTES;
+        for (int k = 0; k < key.length; k += 1) {
+            int c = Integer.compare(buf.get(base + k) & 0xff, key[k] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the hex SHA-1 of record I of BUF. */
+    private static String shaAt(ByteBuffer buf, int i) {
+        byte[] raw = new byte[SHA_BYTES];
+        int base = RECORDS_START + i * RECORD_BYTES;
+        for (int k = 0; k < SHA_BYTES; k += 1) {
+            raw[k] = buf.get(base + k);
+        }
+        return toHex(raw);
+    }
+
+    /** Returns the raw bytes of the hex string PREFIX, which has an even
+     *  length. */
+    private static byte[] prefixBytes(String prefix) {
+        byte[] raw = new byte[prefix.length() / 2];
+        for (int k = 0; k < raw.length; k += 1) {
+            raw[k] = (byte) Integer.parseInt(
+                    prefix.substring(2 * k, 2 * k + 2), 16);
+        }
+        return raw;
+    }
+
+    /** Returns the raw 20 bytes of the full hex SHA-1 ID SHA. */
+    static byte[] toRaw(String sha) {
+        if (sha.length() != Utils.UID_LENGTH) {
+            throw new IllegalArgumentException("not a full SHA-1 ID: " + sha);
+        }
+        return prefixBytes(sha);
+    }
+
+    /** Returns the hex form of the raw SHA-1 bytes RAW. */
+    static String toHex(byte[] raw) {
+        StringBuilder result = new StringBuilder(2 * raw.length);
+        for (byte b : raw) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16));
+            result.append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /** Returns the record for commit SHA at position POS. */
+    private static byte[] record(String sha, int pos) {
+        byte[] rec = new byte[RECORD_BYTES];
+        System.arraycopy(toRaw(sha), 0, rec, 0, SHA_BYTES);
+        ByteBuffer.wrap(rec).putInt(SHA_BYTES, pos);
+        return rec;
+    }
+
+    /** Orders records by their raw SHA-1 bytes. */
+    private static final Comparator<byte[]> RECORD_ORDER =
+        new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                for (int k = 0; k < SHA_BYTES; k += 1) {
+                    int c = Integer.compare(a[k] & 0xff, b[k] & 0xff);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+        };
+
+    /** Returns the header bytes of INDEX. */
+    private static byte[] readHeader(File index) {
+        try (RandomAccessFile raf = new RandomAccessFile(index, "r")) {
+            byte[] header = new byte[HEADER_BYTES];
+            raf.readFully(header);
+            return header;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes RECORDS, sorting them first, as the new index covering the
+     *  first RECORDS.length entries of the journal. */
+    private static void write(byte[][] records) {
+        Arrays.sort(records, RECORD_ORDER);
+        ByteBuffer buf = ByteBuffer.allocate(RECORDS_START
+                + records.length * RECORD_BYTES);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(records.length)
+            .putInt(records.length);
+        int[] counts = new int[256];
+        for (byte[] rec : records) {
+            counts[rec[0] & 0xff] += 1;
+        }
+        int total = 0;
+        for (int b = 0; b < 256; b += 1) {
+            total += counts[b];
+            buf.putInt(total);
+        }
+        for (byte[] rec : records) {
+            buf.put(rec);
+        }
+        Utils.writeContents(indexFile(), (Object) buf.array());
+    }
+}
@@ -0,0 +1,164 @@
+package gitlet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+
+/** The SHA-1 IDs of all commits ever made, in the order they were made,
+ *  kept in .gitlet/commits as an append-only journal.
+ *
+ *  The journal is a small header (magic number, version and record size)
+ *  followed by one fixed-size record per commit holding its raw 20-byte
+ *  SHA-1. Adding a commit appends one record and syncs it, so its cost does
+ *  not depend on the length of the history. A record torn by a crash is
+ *  shorter than RECORD_BYTES; it is ignored by readers and cut off by the
+ *  next append.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class CommitList {
+
+    /** Magic number at the start of the journal ("GCJL"). */
+    static final int MAGIC = 0x47434a4c;
+
+    /** Version of the journal layout. */
+    static final int VERSION = 1;
+
+    /** Length of one record: a raw SHA-1. */
+    static final int RECORD_BYTES = CommitIndex.SHA_BYTES;
+
+    /** Length of the header: magic, version and record size. */
+    static final int HEADER_BYTES = 12;
+
+    /** Returns the journal file. */
+    static File listFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/commits");
+    }
+
+    /** Creates the journal of a new repository holding only the
+     *  initial commit SHA. */
+    static void init(String sha) {
+        init(Collections.singletonList(sha));
+    }
+
+    /** Creates the journal holding SHAS, oldest first, and syncs it to
+     *  disk. */
+    static void init(List<String> shas) {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES
+                + shas.size() * RECORD_BYTES);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(RECORD_BYTES);
+        for (String sha : shas) {
+            buf.put(CommitIndex.toRaw(sha));
+        }
+        buf.flip();
+        try (FileChannel out = FileChannel.open(listFile().toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Appends SHA to the journal, syncs it to disk, and returns its
+     *  position. A record torn by an earlier crash is cut off first, so
+     *  that the new record starts on a record boundary. */
+    static int append(String sha) {
+        ByteBuffer rec = ByteBuffer.wrap(CommitIndex.toRaw(sha));
+        try (FileChannel out = FileChannel.open(listFile().toPath(),
+                StandardOpenOption.WRITE)) {
+            long n = (out.size() - HEADER_BYTES) / RECORD_BYTES;
+            long end = HEADER_BYTES + n * RECORD_BYTES;
+            out.truncate(end);
+            out.position(end);
+            while (rec.hasRemaining()) {
+                out.write(rec);
+            }
+            out.force(true);
+            return (int) n;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Cuts the journal back to its first COUNT commits, as when the
+     *  commands that made the rest are rolled back, together with the
+     *  commit graph, the changed-path filters, the commit index and the
+     *  message index, which all number commits by journal position. Does
+     *  nothing if the journal holds no more than COUNT commits. */
+    static void truncate(int count) {
+        if (read().size() <= count) {
+            return;
+        }
+        truncate(listFile(), HEADER_BYTES, RECORD_BYTES, count);
+        CommitGraph.truncate(count);
+        ChangedPaths.truncate(count);
+        CommitIndex.truncate(count);
+        MessageIndex.truncate(count);
+    }
+
+    /** Cuts FILE, which holds a header of HEADERBYTES bytes and then
+     *  records of RECORDBYTES bytes, back to its first COUNT records, if it
+     *  holds more. */
+    static void truncate(File file, int headerBytes, int recordBytes,
+                         int count) {
+        if (!file.isFile()) {
+            return;
+        }
+        long end = headerBytes + (long) count * recordBytes;
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.WRITE)) {
+            if (out.size() > end) {
+                out.truncate(end);
+                out.force(true);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the SHA-1 IDs of all commits, oldest first. The list is a
+     *  read-only view of the memory-mapped journal and decodes each ID
+     *  only when it is asked for. */
+    static List<String> read() {
+        final MappedByteBuffer buf;
+        try (FileChannel in = FileChannel.open(listFile().toPath(),
+                StandardOpenOption.READ)) {
+            buf = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC
+                || buf.getInt(4) != VERSION
+                || buf.getInt(8) != RECORD_BYTES) {
+            throw Utils.error("Corrupt commit journal.");
+        }
+        final int size = (buf.capacity() - HEADER_BYTES) / RECORD_BYTES;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int i) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException("commit " + i);
+                }
+                byte[] raw = new byte[RECORD_BYTES];
+                ByteBuffer rec = buf.duplicate();
+                rec.position(HEADER_BYTES + i * RECORD_BYTES);
+                rec.get(raw);
+                return CommitIndex.toHex(raw);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/** Reads and decodes many commits at once on the common fork-join pool,
+ *  for scans over the whole history such as global-log and the catch-up
+ *  of the commit indexes. Commits can be delivered in order, through an
+ *  iterator that decodes the next chunk while the current one is used, or
+ *  in no particular order to a sink that is called from several threads.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class CommitScan {
+
+    /** Number of commits decoded together by an ordered scan. */
+    static final int CHUNK = 256;
+
+    /** Largest number of commits one task decodes without splitting. */
+    static final int THRESHOLD = 16;
+
+    /** Receives commits from an unordered scan. */
+    interface Sink {
+        /** Accepts COMMIT, which is at index I of the scanned list. May be
+         *  called from several threads at once. */
+        void accept(int i, Commit commit);
+    }
+
+    /** Decodes the commits whose SHA-1 IDs are at indexes LO to HI - 1 of
+     *  SHAS and passes each to SINK. */
+    private static class Decode extends RecursiveAction {
+        /** Tasks are never serialized, but RecursiveAction is. */
+        private static final long serialVersionUID = 1L;
+        /** The IDs being scanned. */
+        private final List<String> _shas;
+        /** The bounds of this task. */
+        private final int _lo, _hi;
+        /** Receives the commits. */
+        private final Sink _sink;
+
+        /** Decodes SHAS from LO to HI - 1 into SINK. */
+        Decode(List<String> shas, int lo, int hi, Sink sink) {
+            _shas = shas;
+            _lo = lo;
+            _hi = hi;
+            _sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= THRESHOLD) {
+                for (int i = _lo; i < _hi; i += 1) {
+                    _sink.accept(i, Commit.read(_shas.get(i)));
+                }
+                return;
+            }
+            int mid = (_lo + _hi) >>> 1;
+            invokeAll(new Decode(_shas, _lo, mid, _sink),
+                    new Decode(_shas, mid, _hi, _sink));
+        }
+    }
+
+    /** Decodes every commit in SHAS in parallel and passes each to SINK,
+     *  in no particular order, returning once all have been passed. */
+    static void forEach(List<String> shas, Sink sink) {
+        if (!shas.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(
+                    new Decode(shas, 0, shas.size(), sink));
+        }
+    }
+
+    /** Returns the commits whose SHA-1 IDs are SHAS, in the same order.
+     *  Commits are decoded in parallel a chunk at a time, and the next
+     *  chunk is started as soon as the current one is returned, so an
+     *  iteration that stops early decodes at most two chunks it did not
+     *  use. */
+    static Iterator<Commit> ordered(final List<String> shas) {
+        return new Iterator<Commit>() {
+            /** Index in SHAS of the first commit of _current. */
+            private int _start;
+            /** Index in _current of the next commit to return. */
+            private int _next;
+            /** The chunk being returned. */
+            private Commit[] _current = new Commit[0];
+            /** The task decoding the chunk after _current, or null. */
+            private ForkJoinTask<Commit[]> _ahead = decode(0);
+
+            @Override
+            public boolean hasNext() {
+                return _start + _next < shas.size();
+            }
+
+            @Override
+            public Commit next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (_next == _current.length) {
+                    _start += _current.length;
+                    _next = 0;
+                    _current = _ahead.join();
+                    _ahead = decode(_start + _current.length);
+                }
+                Commit result = _current[_next];
+                _current[_next] = null;
+                _next += 1;
+                return result;
+            }
+
+            /** Starts decoding the chunk at index FROM of SHAS, returning
+             *  null if there is none. */
+            private ForkJoinTask<Commit[]> decode(int from) {
+                if (from >= shas.size()) {
+                    return null;
+                }
+                final Commit[] chunk =
+                    new Commit[Math.min(CHUNK, shas.size() - from)];
+                final List<String> part =
+                    shas.subList(from, from + chunk.length);
+                return ForkJoinPool.commonPool().submit(() -> {
+                    forEach(part, (i, c) -> chunk[i] = c);
+                    return chunk;
+                });
+            }
+        };
+    }
+}
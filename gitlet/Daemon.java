@@ -0,0 +1,143 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/** Serves gitlet commands for one repository over a Unix-domain socket,
+ *  .gitlet/daemon.sock, so that the JVM, the command engine and the
+ *  ObjectCache stay warm between commands. Requests are served one at a
+ *  time, in the order they arrive. The running totals of the Stats
+ *  counters are written every Stats.DEFER_MILLIS rather than after each
+ *  command, and when the daemon stops.
+ *
+ *  Each request is one connection. The client sends its working directory
+ *  and its arguments, each as a length-prefixed UTF-8 string after a count
+ *  of arguments, then shuts down its side of the connection. The daemon
+ *  runs the command as Main would, with System.out sent to the
+ *  connection, and closes the connection when it is done. The arguments
+ *  "daemon stop" stop the daemon. See Client for the other side.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Daemon {
+
+    /** Version of the request format. */
+    static final int VERSION = 1;
+
+    /** Returns the socket file of the repository in DIR. */
+    static File socketFile(String dir) {
+        return new File(dir + "/.gitlet/daemon.sock");
+    }
+
+    /** Serves commands for the repository in the current directory until
+     *  asked to stop. */
+    static void serve() throws IOException {
+        String dir = System.getProperty("user.dir");
+        if (!new File(".gitlet").exists()) {
+            System.out.println("Not in an initialized Gitlet directory.");
+            return;
+        }
+        File socket = socketFile(dir);
+        Files.deleteIfExists(socket.toPath());
+        try (ServerSocketChannel server =
+                 ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket.toPath()));
+            Stats.defer();
+            boolean running = true;
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    running = handle(dir, client);
+                } catch (IOException excp) {
+                    System.err.println(excp.getMessage());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socket.toPath());
+            Stats.persist();
+        }
+    }
+
+    /** Runs the request read from CLIENT against the repository in DIR,
+     *  and returns false if it asked the daemon to stop. */
+    private static boolean handle(String dir, SocketChannel client)
+            throws IOException {
+        DataInputStream in = new DataInputStream(
+                Channels.newInputStream(client));
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                Channels.newOutputStream(client), BlobStore.BUFFER_SIZE),
+                false, StandardCharsets.UTF_8);
+        if (in.readInt() != VERSION) {
+            out.println("Unknown request format.");
+            out.flush();
+            return true;
+        }
+        String cwd = readString(in);
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = readString(in);
+        }
+        if (!cwd.equals(dir)) {
+            out.printf("The daemon serves %s.%n", dir);
+            out.flush();
+            return true;
+        }
+        if (args.length > 0 && args[0].equals("daemon")) {
+            boolean stop = args.length == 2 && args[1].equals("stop");
+            out.println(stop ? "Daemon stopped."
+                        : "A daemon is already running.");
+            out.flush();
+            return !stop;
+        }
+
+        PrintStream stdout = System.out;
+        System.setOut(out);
+        try {
+            Main.execute(args);
+        } catch (IOException | ClassNotFoundException
+                 | RuntimeException excp) {
+            ObjectCache.forgetMutable();
+            out.println(excp.getMessage());
+        } finally {
+            System.setOut(stdout);
+            out.flush();
+        }
+        return true;
+    }
+
+    /** Writes S to OUT as a length-prefixed UTF-8 string. */
+    static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Reads a length-prefixed UTF-8 string from IN. */
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Copies everything from IN to OUT. */
+    static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BlobStore.BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+        }
+        out.flush();
+    }
+}
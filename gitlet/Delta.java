@@ -0,0 +1,142 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/** Binary deltas between object contents, used by Pack to store one
+ *  version of a file as the changes from another.
+ *
+ *  A delta is the varint sizes of the base and the result, followed by
+ *  instructions, each a byte saying which kind: INSERT, then a varint
+ *  length and that many literal bytes, or COPY, then a varint offset and
+ *  length of bytes to copy from the base. Matches are found by indexing
+ *  the base in blocks of BLOCK bytes and extending every block of the
+ *  target that matches one in both directions.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Delta {
+
+    /** Instruction: insert literal bytes. */
+    static final int INSERT = 0;
+
+    /** Instruction: copy bytes from the base. */
+    static final int COPY = 1;
+
+    /** Length of the blocks of the base that are indexed. */
+    static final int BLOCK = 16;
+
+    /** Returns a delta that turns BASE into TARGET. */
+    static byte[] encode(byte[] base, byte[] target) {
+        HashMap<Integer, Integer> blocks = new HashMap<Integer, Integer>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CommitCodec.writeVarint(out, base.length);
+        CommitCodec.writeVarint(out, target.length);
+        int literal = 0;
+        int i = 0;
+        while (i + BLOCK <= target.length) {
+            Integer at = blocks.get(hash(target, i));
+            if (at == null || !Arrays.equals(base, at, at + BLOCK,
+                                             target, i, i + BLOCK)) {
+                i += 1;
+                continue;
+            }
+            int from = at;
+            int start = i;
+            while (from > 0 && start > literal
+                   && base[from - 1] == target[start - 1]) {
+                from -= 1;
+                start -= 1;
+            }
+            int end = i + BLOCK;
+            int fromEnd = at + BLOCK;
+            while (end < target.length && fromEnd < base.length
+                   && base[fromEnd] == target[end]) {
+                end += 1;
+                fromEnd += 1;
+            }
+            insert(out, target, literal, start);
+            out.write(COPY);
+            CommitCodec.writeVarint(out, from);
+            CommitCodec.writeVarint(out, end - start);
+            i = end;
+            literal = end;
+        }
+        insert(out, target, literal, target.length);
+        return out.toByteArray();
+    }
+
+    /** Writes to OUT an instruction inserting DATA from FROM to TO, if
+     *  that is not empty. */
+    private static void insert(ByteArrayOutputStream out, byte[] data,
+                               int from, int to) {
+        if (from < to) {
+            out.write(INSERT);
+            CommitCodec.writeVarint(out, to - from);
+            out.write(data, from, to - from);
+        }
+    }
+
+    /** Returns the hash of the BLOCK bytes of DATA starting at I. */
+    private static int hash(byte[] data, int i) {
+        int h = 1;
+        for (int k = i; k < i + BLOCK; k += 1) {
+            h = 31 * h + data[k];
+        }
+        return h;
+    }
+
+    /** Returns the result of applying DELTA to BASE. Throws a
+     *  GitletException if DELTA is malformed, as when an instruction
+     *  reaches outside BASE or the result. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        ByteBuffer in = ByteBuffer.wrap(delta);
+        try {
+            if (CommitCodec.readVarint(in) != base.length) {
+                throw Utils.error("Delta does not match its base.");
+            }
+            long size = CommitCodec.readVarint(in);
+            if (size < 0 || size > Integer.MAX_VALUE) {
+                throw Utils.error("Corrupt pack.");
+            }
+            byte[] result = new byte[(int) size];
+            int pos = 0;
+            while (in.hasRemaining()) {
+                int op = in.get();
+                if (op == INSERT) {
+                    long len = CommitCodec.readVarint(in);
+                    if (len < 0 || len > result.length - pos
+                            || len > in.remaining()) {
+                        throw Utils.error("Corrupt pack.");
+                    }
+                    in.get(result, pos, (int) len);
+                    pos += (int) len;
+                } else if (op == COPY) {
+                    long from = CommitCodec.readVarint(in);
+                    long len = CommitCodec.readVarint(in);
+                    if (from < 0 || len < 0 || from > base.length
+                            || len > base.length - from
+                            || len > result.length - pos) {
+                        throw Utils.error("Corrupt pack.");
+                    }
+                    System.arraycopy(base, (int) from, result, pos,
+                                     (int) len);
+                    pos += (int) len;
+                } else {
+                    throw Utils.error("Corrupt pack.");
+                }
+            }
+            if (pos != result.length) {
+                throw Utils.error("Corrupt pack.");
+            }
+            return result;
+        } catch (BufferUnderflowException excp) {
+            throw Utils.error("Corrupt pack.");
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/** Line diffs, found with the linear-space form of Myers' O(ND) algorithm,
+ *  which repeatedly finds the middle snake of an optimal edit script and
+ *  divides the problem there, so that only two arrays of diagonals are
+ *  kept however large the inputs.
+ *
+ *  Before diffing, every line is replaced by a number shared by all equal
+ *  lines (see Numbering), so the algorithm compares ints rather than
+ *  bytes, and lines common to the starts and ends of the inputs are
+ *  skipped before any diagonal is searched.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Diff {
+
+    /** The lines of some contents, each including its line terminator. */
+    static class Lines {
+        /** The contents, from index 0 to the limit, which may be mapped
+         *  from a file rather than held on the heap. */
+        private final ByteBuffer _data;
+        /** The start of each line, then the length of the contents. */
+        private final int[] _starts;
+
+        /** The lines of DATA. */
+        Lines(byte[] data) {
+            this(ByteBuffer.wrap(data));
+        }
+
+        /** The lines of the remaining bytes of DATA, whose position is not
+         *  changed. */
+        Lines(ByteBuffer data) {
+            _data = data.slice();
+            int length = _data.limit();
+            int count = 0;
+            for (int i = 0; i < length; i += 1) {
+                if (_data.get(i) == '\n') {
+                    count += 1;
+                }
+            }
+            if (length > 0 && _data.get(length - 1) != '\n') {
+                count += 1;
+            }
+            _starts = new int[count + 1];
+            int line = 1;
+            for (int i = 0; i < length && line < count; i += 1) {
+                if (_data.get(i) == '\n') {
+                    _starts[line] = i + 1;
+                    line += 1;
+                }
+            }
+            _starts[count] = length;
+        }
+
+        /** Returns the number of lines. */
+        int count() {
+            return _starts.length - 1;
+        }
+
+        /** Returns the offset of the start of line I, or the length of the
+         *  contents if I is count(). */
+        int start(int i) {
+            return _starts[i];
+        }
+
+        /** Returns the contents of lines FROM to TO - 1, sharing those
+         *  of these lines. */
+        ByteBuffer bytes(int from, int to) {
+            return _data.slice(_starts[from], _starts[to] - _starts[from]);
+        }
+
+        /** Returns true if line I equals line J of OTHER. */
+        boolean lineEquals(int i, Lines other, int j) {
+            return rangeEquals(i, i + 1, other, j, j + 1);
+        }
+
+        /** Returns true if lines FROM to TO - 1 equal lines OFROM to
+         *  OTO - 1 of OTHER. */
+        boolean rangeEquals(int from, int to, Lines other, int ofrom,
+                            int oto) {
+            return bytes(from, to).equals(other.bytes(ofrom, oto));
+        }
+    }
+
+    /** Numbers lines so that two lines get the same number iff they are
+     *  equal. */
+    static class Numbering {
+        /** The first line seen with each distinct contents, mapped to its
+         *  number. */
+        private final HashMap<Key, Integer> _numbers =
+            new HashMap<Key, Integer>();
+
+        /** Returns the number of each line of LINES. */
+        int[] number(Lines lines) {
+            int[] result = new int[lines.count()];
+            for (int i = 0; i < result.length; i += 1) {
+                Key key = new Key(lines, i);
+                Integer n = _numbers.putIfAbsent(key, _numbers.size());
+                result[i] = n == null ? _numbers.size() - 1 : n;
+            }
+            return result;
+        }
+    }
+
+    /** A line of some Lines, compared by contents. */
+    private static class Key {
+        /** The lines. */
+        private final Lines _lines;
+        /** The line number. */
+        private final int _line;
+        /** The hash of the line's contents. */
+        private final int _hash;
+
+        /** The key for line LINE of LINES. */
+        Key(Lines lines, int line) {
+            _lines = lines;
+            _line = line;
+            int h = 1;
+            ByteBuffer data = lines._data;
+            for (int i = lines._starts[line]; i < lines._starts[line + 1];
+                 i += 1) {
+                h = 31 * h + data.get(i);
+            }
+            _hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _hash == other._hash
+                && _lines.lineEquals(_line, other._lines, other._line);
+        }
+    }
+
+    /** A change: lines aStart to aEnd - 1 of A replaced by lines bStart to
+     *  bEnd - 1 of B. */
+    static class Hunk {
+        /** First line in A. */
+        final int aStart;
+        /** Line in A after the last. */
+        final int aEnd;
+        /** First line in B. */
+        final int bStart;
+        /** Line in B after the last. */
+        final int bEnd;
+
+        /** The hunk replacing lines ASTART to AEND - 1 of A by lines BSTART
+         *  to BEND - 1 of B. */
+        Hunk(int aStart, int aEnd, int bStart, int bEnd) {
+            this.aStart = aStart;
+            this.aEnd = aEnd;
+            this.bStart = bStart;
+            this.bEnd = bEnd;
+        }
+    }
+
+    /** Returns the hunks of a shortest edit script turning the lines A into
+     *  the lines B. */
+    static List<Hunk> diff(Lines a, Lines b) {
+        Numbering numbering = new Numbering();
+        return diff(numbering.number(a), numbering.number(b));
+    }
+
+    /** Returns the hunks of a shortest edit script turning the numbered
+     *  lines A into the numbered lines B, in order. Line numbers are
+     *  non-negative, as from a Numbering. Lines found in only one of A and
+     *  B cannot match, so they are marked changed at once and left out of
+     *  the search. */
+    static List<Hunk> diff(int[] a, int[] b) {
+        boolean[] deleted = new boolean[a.length];
+        boolean[] inserted = new boolean[b.length];
+        int[] aKept = common(a, b, deleted);
+        int[] bKept = common(b, a, inserted);
+        Diff d = new Diff(select(a, aKept), select(b, bKept));
+        d.compare(0, aKept.length, 0, bKept.length);
+        for (int i = 0; i < aKept.length; i += 1) {
+            deleted[aKept[i]] = d._deleted[i];
+        }
+        for (int j = 0; j < bKept.length; j += 1) {
+            inserted[bKept[j]] = d._inserted[j];
+        }
+
+        List<Hunk> hunks = new ArrayList<Hunk>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (i < a.length && j < b.length && !deleted[i] && !inserted[j]) {
+                i += 1;
+                j += 1;
+                continue;
+            }
+            int i0 = i;
+            int j0 = j;
+            while (i < a.length && deleted[i]) {
+                i += 1;
+            }
+            while (j < b.length && inserted[j]) {
+                j += 1;
+            }
+            hunks.add(new Hunk(i0, i, j0, j));
+        }
+        return hunks;
+    }
+
+    /** Returns the indexes of the lines of X that also occur in Y, in
+     *  order, and marks the others in UNIQUE. */
+    private static int[] common(int[] x, int[] y, boolean[] unique) {
+        int max = 0;
+        for (int v : x) {
+            max = Math.max(max, v);
+        }
+        for (int v : y) {
+            max = Math.max(max, v);
+        }
+        boolean[] inY = new boolean[max + 1];
+        for (int v : y) {
+            inY[v] = true;
+        }
+        int[] kept = new int[x.length];
+        int n = 0;
+        for (int i = 0; i < x.length; i += 1) {
+            if (inY[x[i]]) {
+                kept[n] = i;
+                n += 1;
+            } else {
+                unique[i] = true;
+            }
+        }
+        return Arrays.copyOf(kept, n);
+    }
+
+    /** Returns the lines of X at INDEXES. */
+    private static int[] select(int[] x, int[] indexes) {
+        int[] result = new int[indexes.length];
+        for (int i = 0; i < indexes.length; i += 1) {
+            result[i] = x[indexes[i]];
+        }
+        return result;
+    }
+
+    /** Least number of edits searched for the middle snake of any part of
+     *  the inputs before settling for the path that got furthest. */
+    static final int MIN_COST_LIMIT = 256;
+
+    /** The numbered lines being turned into _b. */
+    private final int[] _a;
+
+    /** The numbered lines _a is turned into. */
+    private final int[] _b;
+
+    /** Which lines of _a are deleted. */
+    private final boolean[] _deleted;
+
+    /** Which lines of _b are inserted. */
+    private final boolean[] _inserted;
+
+    /** How far the furthest reaching path searching forward gets in A on
+     *  each diagonal, indexed by diagonal plus _offset. */
+    private final int[] _forward;
+
+    /** As for _forward, searching backward from the ends. */
+    private final int[] _backward;
+
+    /** Added to a diagonal to index _forward and _backward. */
+    private final int _offset;
+
+    /** Number of edits after which the search for a middle snake stops:
+     *  about the square root of the size of the inputs, as in GNU diff,
+     *  but at least MIN_COST_LIMIT. Only inputs with very many changes
+     *  among lines common to both get a longer script than the
+     *  shortest. */
+    private final int _costLimit;
+
+    /** A comparison of A with B. */
+    private Diff(int[] a, int[] b) {
+        _a = a;
+        _b = b;
+        _deleted = new boolean[a.length];
+        _inserted = new boolean[b.length];
+        _offset = a.length + b.length + 1;
+        _forward = new int[2 * _offset + 1];
+        _backward = new int[2 * _offset + 1];
+        int limit = 1;
+        for (int diags = _offset + 2; diags != 0; diags >>= 2) {
+            limit <<= 1;
+        }
+        _costLimit = Math.max(MIN_COST_LIMIT, limit);
+    }
+
+    /** Marks the lines deleted and inserted by a shortest edit script
+     *  turning lines ALO to AHI - 1 of A into lines BLO to BHI - 1 of B. */
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && _a[aLo] == _b[bLo]) {
+            aLo += 1;
+            bLo += 1;
+        }
+        while (aLo < aHi && bLo < bHi && _a[aHi - 1] == _b[bHi - 1]) {
+            aHi -= 1;
+            bHi -= 1;
+        }
+        if (aLo == aHi) {
+            Arrays.fill(_inserted, bLo, bHi, true);
+        } else if (bLo == bHi) {
+            Arrays.fill(_deleted, aLo, aHi, true);
+        } else {
+            long split = middleSnake(aLo, aHi, bLo, bHi);
+            int x = (int) (split >>> 32);
+            int y = (int) split;
+            compare(aLo, x, bLo, y);
+            compare(x, aHi, y, bHi);
+        }
+    }
+
+    /** Returns a point on a shortest edit script turning lines ALO to
+     *  AHI - 1 of A into lines BLO to BHI - 1 of B, both non-empty and
+     *  differing in their first and last lines: the line of A in the high
+     *  32 bits and the line of B in the low ones. */
+    private long middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int[] vf = _forward;
+        int[] vb = _backward;
+        int off = _offset;
+        vf[off + 1] = 0;
+        vb[off + 1] = 0;
+        int max = (n + m + 1) / 2;
+        for (int d = 0; d <= max; d += 1) {
+            if (d > _costLimit) {
+                return furthest(d - 1, aLo, bLo, n, m);
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vf[off + k - 1] < vf[off + k + 1])
+                    ? vf[off + k + 1] : vf[off + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && _a[aLo + x] == _b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vf[off + k] = x;
+                int c = delta - k;
+                if (odd && c >= -(d - 1) && c <= d - 1
+                        && x + vb[off + c] >= n) {
+                    return ((long) (aLo + x) << 32) | (bLo + y);
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && vb[off + k - 1] < vb[off + k + 1])
+                    ? vb[off + k + 1] : vb[off + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m
+                       && _a[aHi - 1 - x] == _b[bHi - 1 - y]) {
+                    x += 1;
+                    y += 1;
+                }
+                vb[off + k] = x;
+                int c = delta - k;
+                if (!odd && c >= -d && c <= d && x + vf[off + c] >= n) {
+                    return ((long) (aHi - x) << 32) | (bHi - y);
+                }
+            }
+        }
+        throw new IllegalStateException("No middle snake.");
+    }
+
+    /** Returns, as for middleSnake, the point furthest from the start of
+     *  lines ALO to ALO + N - 1 of A and BLO to BLO + M - 1 of B reached by
+     *  the forward search after D edits. */
+    private long furthest(int d, int aLo, int bLo, int n, int m) {
+        int bestX = 0;
+        int bestY = 0;
+        for (int k = -d; k <= d; k += 2) {
+            int x = Math.min(_forward[_offset + k], n);
+            int y = x - k;
+            if (y >= 0 && y <= m && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        return ((long) (aLo + bestX) << 32) | (bLo + bestY);
+    }
+}
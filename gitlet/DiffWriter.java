@@ -0,0 +1,272 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Writes the differences between two versions of files to standard
+ *  output, either as unified diffs with CONTEXT lines of context around
+ *  each change, or, with --stat, as one line per file counting the lines
+ *  inserted and deleted followed by a summary. Contents are written as
+ *  they are, byte for byte; files holding a NUL byte are binary and are
+ *  only reported as differing.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class DiffWriter {
+
+    /** Number of unchanged lines shown around each change. */
+    static final int CONTEXT = 3;
+
+    /** Widest bar of +'s and -'s in --stat output. */
+    static final int STAT_WIDTH = 50;
+
+    /** Number of hex digits of the blob IDs on index lines. */
+    static final int ABBREV = 7;
+
+    /** ID shown for the missing side of an added or deleted file. */
+    private static final String NO_BLOB = "0000000";
+
+    /** One line of --stat output. */
+    private static class Stat {
+        /** The file name. */
+        private final String name;
+        /** Lines inserted, or -1 for a binary file. */
+        private final int insertions;
+        /** Lines deleted, or -1 for a binary file. */
+        private final int deletions;
+
+        /** The line for NAME with INSERTIONS and DELETIONS. */
+        Stat(String name, int insertions, int deletions) {
+            this.name = name;
+            this.insertions = insertions;
+            this.deletions = deletions;
+        }
+    }
+
+    /** Buffered stream over standard output. */
+    private final BufferedOutputStream _out;
+
+    /** True if only --stat lines are written. */
+    private final boolean _stat;
+
+    /** The --stat lines, written by flush. */
+    private final List<Stat> _stats = new ArrayList<Stat>();
+
+    /** A writer of unified diffs, or of --stat lines if STAT. */
+    DiffWriter(boolean stat) {
+        _out = new BufferedOutputStream(System.out, BlobStore.BUFFER_SIZE);
+        _stat = stat;
+    }
+
+    /** Writes the difference between the versions of the file NAME with
+     *  contents BEFORE in the blob BEFORESHA and AFTER in the blob
+     *  AFTERSHA. A null BEFORE or AFTER means the file did not exist; a
+     *  null BEFORESHA or AFTERSHA means the contents are not stored. */
+    void write(String name, String beforeSha, byte[] before,
+               String afterSha, byte[] after) {
+        byte[] a = before == null ? new byte[0] : before;
+        byte[] b = after == null ? new byte[0] : after;
+        boolean binary = LineMerge.isBinary(a) || LineMerge.isBinary(b);
+        Diff.Lines aLines = binary ? null : new Diff.Lines(a);
+        Diff.Lines bLines = binary ? null : new Diff.Lines(b);
+        List<Diff.Hunk> hunks = binary ? null : Diff.diff(aLines, bLines);
+        if (_stat) {
+            int insertions = -1;
+            int deletions = -1;
+            if (!binary) {
+                insertions = 0;
+                deletions = 0;
+                for (Diff.Hunk h : hunks) {
+                    insertions += h.bEnd - h.bStart;
+                    deletions += h.aEnd - h.aStart;
+                }
+            }
+            _stats.add(new Stat(name, insertions, deletions));
+            return;
+        }
+        write("diff --git a/" + name + " b/" + name + "\n");
+        if (before == null) {
+            write("new file\n");
+        } else if (after == null) {
+            write("deleted file\n");
+        }
+        write("index " + abbrev(beforeSha, before) + ".."
+              + abbrev(afterSha, after) + "\n");
+        if (binary) {
+            write("Binary files " + (before == null ? "/dev/null" : "a/" + name)
+                  + " and " + (after == null ? "/dev/null" : "b/" + name)
+                  + " differ\n");
+            return;
+        }
+        write("--- " + (before == null ? "/dev/null" : "a/" + name) + "\n");
+        write("+++ " + (after == null ? "/dev/null" : "b/" + name) + "\n");
+        int k = 0;
+        while (k < hunks.size()) {
+            int last = k;
+            while (last + 1 < hunks.size() && hunks.get(last + 1).aStart
+                   - hunks.get(last).aEnd <= 2 * CONTEXT) {
+                last += 1;
+            }
+            writeHunks(aLines, bLines, hunks.subList(k, last + 1));
+            k = last + 1;
+        }
+    }
+
+    /** Writes HUNKS, changes from A to B close enough to share their
+     *  context, as one hunk of a unified diff. */
+    private void writeHunks(Diff.Lines a, Diff.Lines b,
+                            List<Diff.Hunk> hunks) {
+        Diff.Hunk first = hunks.get(0);
+        Diff.Hunk last = hunks.get(hunks.size() - 1);
+        int aStart = Math.max(0, first.aStart - CONTEXT);
+        int aEnd = Math.min(a.count(), last.aEnd + CONTEXT);
+        int bStart = first.bStart - (first.aStart - aStart);
+        int bEnd = last.bEnd + (aEnd - last.aEnd);
+        write("@@ -" + range(aStart, aEnd - aStart) + " +"
+              + range(bStart, bEnd - bStart) + " @@\n");
+        int at = aStart;
+        for (Diff.Hunk h : hunks) {
+            writeLines(' ', a, at, h.aStart);
+            writeLines('-', a, h.aStart, h.aEnd);
+            writeLines('+', b, h.bStart, h.bEnd);
+            at = h.aEnd;
+        }
+        writeLines(' ', a, at, aEnd);
+    }
+
+    /** Returns the range of COUNT lines starting at line START, counting
+     *  from 0, as shown on hunk headers. */
+    private static String range(int start, int count) {
+        if (count == 0) {
+            return start + ",0";
+        } else if (count == 1) {
+            return Integer.toString(start + 1);
+        }
+        return (start + 1) + "," + count;
+    }
+
+    /** Writes lines FROM to TO - 1 of LINES, each after PREFIX. */
+    private void writeLines(char prefix, Diff.Lines lines, int from, int to) {
+        try {
+            for (int i = from; i < to; i += 1) {
+                ByteBuffer line = lines.bytes(i, i + 1);
+                _out.write(prefix);
+                _out.write(line.array(), line.arrayOffset(),
+                           line.remaining());
+                if (line.get(line.remaining() - 1) != '\n') {
+                    _out.write('\n');
+                    write("\\ No newline at end of file\n");
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the abbreviated ID of the blob SHA holding DATA, hashing
+     *  DATA if SHA is null. */
+    private static String abbrev(String sha, byte[] data) {
+        if (data == null) {
+            return NO_BLOB;
+        } else if (sha == null) {
+            sha = Utils.sha1((Object) data);
+        }
+        return sha.substring(0, ABBREV);
+    }
+
+    /** Writes TEXT in UTF-8. */
+    private void write(String text) {
+        try {
+            _out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the --stat lines, if any, and everything buffered so far. */
+    void flush() {
+        if (_stat && !_stats.isEmpty()) {
+            writeStats();
+        }
+        try {
+            _out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the --stat lines and their summary. */
+    private void writeStats() {
+        int nameWidth = 0;
+        int most = 0;
+        int insertions = 0;
+        int deletions = 0;
+        for (Stat s : _stats) {
+            nameWidth = Math.max(nameWidth, s.name.length());
+            if (s.insertions >= 0) {
+                most = Math.max(most, s.insertions + s.deletions);
+                insertions += s.insertions;
+                deletions += s.deletions;
+            }
+        }
+        int countWidth = Integer.toString(most).length();
+        StringBuilder text = new StringBuilder();
+        for (Stat s : _stats) {
+            text.append(' ').append(s.name);
+            pad(text, nameWidth - s.name.length());
+            text.append(" | ");
+            if (s.insertions < 0) {
+                text.append("Bin\n");
+                continue;
+            }
+            String count = Integer.toString(s.insertions + s.deletions);
+            pad(text, countWidth - count.length());
+            text.append(count).append(' ');
+            int plus = s.insertions;
+            int minus = s.deletions;
+            if (most > STAT_WIDTH) {
+                plus = scale(plus, most);
+                minus = scale(minus, most);
+            }
+            repeat(text, '+', plus);
+            repeat(text, '-', minus);
+            text.append('\n');
+        }
+        text.append(' ').append(_stats.size())
+            .append(_stats.size() == 1 ? " file changed" : " files changed");
+        if (insertions > 0 || deletions == 0) {
+            text.append(", ").append(insertions)
+                .append(insertions == 1 ? " insertion(+)" : " insertions(+)");
+        }
+        if (deletions > 0) {
+            text.append(", ").append(deletions)
+                .append(deletions == 1 ? " deletion(-)" : " deletions(-)");
+        }
+        text.append('\n');
+        write(text.toString());
+    }
+
+    /** Returns COUNT scaled from a bar of MOST to one of STAT_WIDTH, at
+     *  least 1 if COUNT is not 0. */
+    private static int scale(int count, int most) {
+        if (count == 0) {
+            return 0;
+        }
+        return Math.max(1, (int) ((long) count * STAT_WIDTH / most));
+    }
+
+    /** Appends N spaces to TEXT. */
+    private static void pad(StringBuilder text, int n) {
+        repeat(text, ' ', n);
+    }
+
+    /** Appends N copies of C to TEXT. */
+    private static void repeat(StringBuilder text, char c, int n) {
+        for (int i = 0; i < n; i += 1) {
+            text.append(c);
+        }
+    }
+}
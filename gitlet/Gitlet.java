@@ -2,8 +2,16 @@ package gitlet;
 
 import java.io.*;
 import java.lang.System;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import static gitlet.Utils.message;
 
 /** @authors: Judy Moon, Jiaming Yuan, Maoqi Zhang **/
@@ -16,14 +24,15 @@ public class Gitlet {
      */
     public void init() throws IOException {
         Stage stagingArea = new Stage();
+        Refs refs = new Refs();
 
         /**
          * Makes the initial commit and the master branch.
          * Sets the current branch to master.
          * */
         gitlet.Commit new_commit = new gitlet.Commit();
-        stagingArea._branches.put("master", new_commit.getSha());
-        stagingArea.current_branch_name = "master";
+        refs._branches.put("master", new_commit.getSha());
+        refs.current_branch_name = "master";
 
         /** Creates the .gitlet directory if it doesn't already exist. */
         File gitlet = new File(".gitlet");
@@ -42,23 +51,26 @@ public class Gitlet {
                 + "/.gitlet/objects");
         objects.mkdir();
 
-        new_commit.hashMapblobs.putAll(stagingArea._stagingMap);
+        new Tree().write();
         stagingArea._stagingMap.clear();
-        stagingArea._commitList.add(new_commit.getSha());
+        CommitList.init(new_commit.getSha());
+        CommitIndex.rebuild(CommitList.read());
         ObjectOutputStream output = new ObjectOutputStream(
                 new FileOutputStream(stagedFile));
         output.writeObject(stagingArea);
         output.close();
+        Utils.writeObject(new File(System.getProperty("user.dir")
+                + "/.gitlet/refs"), refs);
 
-        ObjectOutputStream output2 = new ObjectOutputStream(new FileOutputStream(objects
-                        + "/" + new_commit.getSha()));
-        output2.writeObject(new_commit);
-        output2.close();
+        new_commit.store();
+        CommitGraph.update();
+        ChangedPaths.update();
+        MessageIndex.append(new_commit.getSha(), new_commit.getMessage());
 
         /** Set the head commit of the current branch as the first commit. */
         File head = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Utils.writeObject(head, new_commit);
+        new_commit.write(head);
     }
 
     /**
@@ -66,43 +78,59 @@ public class Gitlet {
      * Staging the file for addition.
      * */
     public void add(String filename) throws ClassNotFoundException, IOException {
+        add(Collections.singletonList(filename));
+    }
+
+    /**
+     * Adds every file named in PATHS to the staging area, descending into
+     * directories (so "." adds every file in the working directory except
+     * those under .gitlet). Files are hashed and stored in parallel, and
+     * the staging area is written once. Nothing is staged if a path does
+     * not exist.
+     * @param paths
+     */
+    public void add(List<String> paths) throws IOException {
         File fhead = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(fhead, Commit.class);
-
-        File oneFile = new File(filename);
-        if (!oneFile.exists()) {
-            System.out.println("File does not exist.");
-            return;
+        Commit head = Commit.read(fhead);
+
+        List<String> files = new ArrayList<String>();
+        Path root = Paths.get(System.getProperty("user.dir"));
+        for (String name : paths) {
+            Path path = root.resolve(name).normalize();
+            if (!Files.exists(path) || !path.startsWith(root)) {
+                System.out.println("File does not exist.");
+                return;
+            }
+            if (!Files.isDirectory(path)) {
+                files.add(root.relativize(path).toString());
+                continue;
+            }
+            files.addAll(filesUnder(root, path));
         }
 
-        /** Make a SHA-1 ID for the given oneFile. */
-        byte[] shaContents = Utils.readContents(oneFile);
-        String shaFile = Utils.sha1(shaContents);
+        /** Make a SHA-1 ID for each file, reusing the cached one if the
+         * file is unchanged, and store its blob if it is new. */
+        StatCache cache = StatCache.load();
+        Map<String, String> shas = BlobStore.storeAll(files, cache);
+        cache.save();
 
         File f = new File(System.getProperty("user.dir")
                 + "/.gitlet/staged");
-        Stage staged = Utils.readObject(f, Stage.class);
+        Stage staged = Stage.read(f);
+        HashMap<String, String> tracked = head.getBlobs(shas.keySet());
 
-        if (staged._stagingRemove.contains(filename)) {
+        for (Map.Entry<String, String> e : shas.entrySet()) {
+            String filename = e.getKey();
+            String shaFile = e.getValue();
             staged._stagingRemove.remove(filename);
+            if (shaFile.equals(tracked.get(filename))) {
+                staged._stagingMap.remove(filename);
+            } else {
+                staged._stagingMap.put(filename, shaFile);
+            }
         }
-
-        if (head.hashMapblobs.containsKey(filename)
-                && head.hashMapblobs.get(filename).equals(shaFile)) {
-            staged._stagingMap.remove(filename);
-            Utils.writeObject(f, staged);
-        } else {
-            staged._stagingMap.put(filename, shaFile);
-
-            File blob = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/" + shaFile);
-            blob.createNewFile();
-            byte[] blobContents = Utils.readContents(oneFile);
-
-            Utils.writeContents(blob, (Object) blobContents);
-            Utils.writeObject(f, staged);
-        }
+        staged.write(f);
     }
 
     /**
@@ -112,10 +140,10 @@ public class Gitlet {
     public void commit(String message) {
         File f = new File(System.getProperty("user.dir")
                 + "/.gitlet/staged");
-        Stage staged = Utils.readObject(f, Stage.class);
+        Stage staged = Stage.read(f);
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        Commit head = Commit.read(headfile);
 
         if (staged._stagingMap.isEmpty() && staged._stagingRemove.isEmpty()) {
             message("No changes added to the commit.");
@@ -126,17 +154,25 @@ public class Gitlet {
         Commit new_commit = new Commit(message);
 
         staged._stagingMap.clear();
-        staged._commitList.add(new_commit.getSha());
+        CommitList.append(new_commit.getSha());
+        CommitIndex.update();
 
         /** Set the head of branch to be this commit. */
-        staged._branches.put(staged.current_branch_name, new_commit.getSha());
-        staged._stagingRemove.removeAll(head.hashMapblobs.keySet());
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
+        refs._branches.put(refs.current_branch_name, new_commit.getSha());
+        staged._stagingRemove.removeAll(
+                head.getBlobs(staged._stagingRemove).keySet());
 
         /** Update information to file. */
-        File commit = new File(System.getProperty("user.dir") + "/.gitlet/objects/" + new_commit.getSha());
-        Utils.writeObject(commit, new_commit);
-        Utils.writeObject(f, staged);
-        Utils.writeObject(headfile, new_commit);
+        new_commit.store();
+        CommitGraph.update();
+        ChangedPaths.update();
+        MessageIndex.append(new_commit.getSha(), new_commit.getMessage());
+        staged.write(f);
+        refs.write(refsFile);
+        new_commit.write(headfile);
     }
 
     /**
@@ -148,11 +184,11 @@ public class Gitlet {
 
         File stagedFile = new File(System.getProperty("user.dir")
                 + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        Stage staged = Stage.read(stagedFile);
 
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        Commit head = Commit.read(headfile);
 
         stagedArea = staged._stagingMap.containsKey(filename);
 
@@ -160,8 +196,8 @@ public class Gitlet {
             staged._stagingMap.remove(filename);
         }
 
-        if (head.hashMapblobs.containsKey(filename)) {
-            Utils.restrictedDelete(filename);
+        if (head.getBlob(filename) != null) {
+            WorkTree.delete(filename);
             headIsTracking = true;
             if (!staged._stagingRemove.contains(filename)) {
                 staged._stagingRemove.add(filename);
@@ -171,73 +207,68 @@ public class Gitlet {
             message("No reason to remove the file.");
         }
 
-        Utils.writeObject(stagedFile, staged);
+        staged.write(stagedFile);
     }
 
     /** Display information about each commit backwards.
      * display commit id, time, commit message (look at log helper function).
+     * Entries are streamed to OUT as the commits are read, and the walk
+     * stops at OUT's limits.
+     * @param out
      */
-    public void log() {
+    public void log(LogWriter out) {
         File headFile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit _head = Utils.readObject(headFile, Commit.class);
-
-        Commit pointer = _head;
-        Formatter output = new Formatter();
-
-        output.format("===\n");
-        output.format("commit %s\n", pointer.getSha());
-
-        SimpleDateFormat dateformat = new SimpleDateFormat(
-                "EEE MMM d HH:mm:ss yyyy Z");
-        output.format("Date: %s\n", dateformat.format(pointer.getTime()));
-
-        output.format("%s\n", pointer.getMessage());
-
-        while (true) {
-            File parentcommitFILE = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/"
-                    + pointer.getParent());
-            pointer = Utils.readObject(parentcommitFILE, Commit.class);
-
-            output.format("\n===\n");
-            output.format("commit %s\n", pointer.getSha());
-            output.format("Date: %s\n", dateformat.format
-                    (pointer.getTime()));
-            output.format("%s\n", pointer.getMessage());
+        Commit pointer = Commit.read(headFile);
 
+        while (!out.done() && !out.tooOld(pointer.getTime())) {
+            out.write(pointer);
             if (pointer.getParent().equals("")) {
                 break;
             }
+            pointer = Commit.read(pointer.getParent());
         }
-        System.out.println(output.toString());
+        out.flush();
+    }
+
+    /** Like log, but only displays the commits on the first-parent history
+     * of the head commit that changed the file PATH.
+     * @param path
+     * @param out
+     */
+    public void log(String path, LogWriter out) {
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
+        Iterator<String> history =
+            ChangedPaths.history(refs.headSha(), path);
+        while (!out.done() && history.hasNext()) {
+            Commit commit = Commit.read(history.next());
+            if (out.tooOld(commit.getTime())) {
+                break;
+            }
+            out.write(commit);
+        }
+        out.flush();
     }
 
     /**
      * Like log, except displays information about all commits ever made.
-     * The order of the commits does not matter.
+     * The order of the commits does not matter. Commits are listed in the
+     * order they were made, so the walk stops at the first one after OUT's
+     * --until limit.
+     * @param out
      */
-    public void globalLog() {
-        Formatter output = new Formatter();
-        File stagedFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
-        Commit commit;
-        File commitFile;
-        SimpleDateFormat dateformat = new SimpleDateFormat(
-                "EEE MMM d HH:mm:ss yyyy Z");
-        for (String sha1 : staged._commitList) {
-            commitFile = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/" + sha1);
-            commit = Utils.readObject(commitFile, Commit.class);
-
-            output.format("===\n");
-            output.format("commit %s\n", commit.getSha());
-            output.format("Date: %s\n", dateformat.format(commit.getTime()));
-            output.format("%s\n\n", commit.getMessage());
+    public void globalLog(LogWriter out) {
+        Iterator<Commit> commits = CommitScan.ordered(CommitList.read());
+        while (!out.done() && commits.hasNext()) {
+            Commit commit = commits.next();
+            if (out.tooNew(commit.getTime())) {
+                break;
+            }
+            out.write(commit);
         }
-        String text = output.toString();
-        System.out.println(text.substring(0, text.lastIndexOf('\n')));
+        out.flush();
     }
 
     /**
@@ -245,23 +276,41 @@ public class Gitlet {
      * @param logMessage
      */
     public void find(String logMessage) {
+        MessageIndex index = MessageIndex.load();
+        printFound(index.exact(logMessage));
+    }
+
+    /**
+     * Like find, but prints the ids of all commits whose message contains
+     * the given word, ignoring case.
+     * @param word
+     */
+    public void findWord(String word) {
+        MessageIndex index = MessageIndex.load();
+        printFound(index.word(word));
+    }
+
+    /**
+     * Like find, but prints the ids of all commits whose message contains
+     * the given text anywhere.
+     * @param text
+     */
+    public void findContaining(String text) {
+        MessageIndex index = MessageIndex.load();
+        printFound(index.containing(text));
+    }
+
+    /** Prints the ids of the commits at the given journal positions, one
+     * per line, or a message if there are none.
+     * @param positions
+     */
+    private void printFound(List<Integer> positions) {
         Formatter output = new Formatter();
-        File stagedFile = new File(System.getProperty("user.dir") + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
-        int count = 0;
-        String message;
-        for (String sha1 : staged._commitList) {
-            File commitfile = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/" + sha1);
-            Commit c = Utils.readObject(commitfile, Commit.class);
-            message = c.getMessage();
-
-            if (message.equals(logMessage)) {
-                output.format("%s\n", c.getSha());
-                count ++;
-            }
+        List<String> commits = CommitList.read();
+        for (int i : positions) {
+            output.format("%s\n", commits.get(i));
         }
-        if (count == 0) {
+        if (positions.isEmpty()) {
             message("Found no commit with that message.");
         }
         System.out.println(output.toString());
@@ -270,25 +319,61 @@ public class Gitlet {
     private class SArrayList extends ArrayList<String> {
     }
 
+    /** Returns the path, relative to ROOT, of every file under the
+     * directory PATH within ROOT, except those under .gitlet, in order. */
+    private static List<String> filesUnder(Path root, Path path) {
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(p -> !p.startsWith(root.resolve(".gitlet"))
+                                    && Files.isRegularFile(p))
+                .map(p -> root.relativize(p).toString())
+                .sorted()
+                .collect(Collectors.toList());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true if a file in the working directory is untracked in the
+     * commit FROM but tracked in the commit TO, so that moving to TO would
+     * overwrite it. Only the paths that differ between their trees are
+     * looked at. */
+    private static boolean untrackedInTheWay(Commit from, Commit to) {
+        Set<String> changed = Tree.diff(from.getTree(), to.getTree());
+        Map<String, String> tracked = from.getBlobs(changed);
+        for (String path : to.getBlobs(changed).keySet()) {
+            if (!tracked.containsKey(path) && new File(path).isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the path of every file in the working directory and its
+     * subdirectories, as add names them, except those under .gitlet. */
+    private static List<String> workingFiles() {
+        Path root = Paths.get(System.getProperty("user.dir"));
+        return filesUnder(root, root);
+    }
+
     /**
      * Displays what branches currently exist, and marks the current branch with a *.
      * Also displays what files have been staged for addition or removal.
      */
     public void status() {
         Formatter output = new Formatter();
-        File headfile = new File(System.getProperty("user.dir") + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        File refsFile = new File(System.getProperty("user.dir") + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
         File stagedFile = new File(System.getProperty("user.dir") + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        Stage staged = Stage.read(stagedFile);
 
         SArrayList branchNames = new SArrayList();
-        branchNames.addAll(staged._branches.keySet());
+        branchNames.addAll(refs._branches.keySet());
         Collections.sort(branchNames);
 
         output.format("=== Branches ===\n");
         for (String branchName : branchNames) {
-            if (staged._branches.get(branchName).equals(head.getSha())) {
+            if (branchName.equals(refs.current_branch_name)) {
                 branchName = '*' + branchName;
             }
             output.format(branchName + "\n");
@@ -310,13 +395,146 @@ public class Gitlet {
             output.format(delete + "\n");
         }
 
+        File headfile = new File(System.getProperty("user.dir") + "/.gitlet/HEAD");
+        HashMap<String, String> tracked = Commit.read(headfile).getBlobs();
+        StatCache cache = StatCache.load();
+
+        /** Files whose contents differ from what would be committed, hashed
+         * only when their stat data changed since they were last hashed. */
         output.format("\n=== Modifications Not Staged For Commit ===\n");
+        TreeSet<String> modified = new TreeSet<String>();
+        for (Map.Entry<String, String> e : tracked.entrySet()) {
+            String name = e.getKey();
+            if (staged._stagingMap.containsKey(name)
+                    || staged._stagingRemove.contains(name)) {
+                continue;
+            }
+            if (!new File(name).isFile()) {
+                modified.add(name + " (deleted)");
+            } else if (!cache.hash(name).equals(e.getValue())) {
+                modified.add(name + " (modified)");
+            }
+        }
+        for (Map.Entry<String, String> e : staged._stagingMap.entrySet()) {
+            String name = e.getKey();
+            if (!new File(name).isFile()) {
+                modified.add(name + " (deleted)");
+            } else if (!cache.hash(name).equals(e.getValue())) {
+                modified.add(name + " (modified)");
+            }
+        }
+        for (String name : modified) {
+            output.format(name + "\n");
+        }
 
         output.format("\n=== Untracked Files ===\n");
+        for (String name : workingFiles()) {
+            if ((!tracked.containsKey(name) && !staged._stagingMap.containsKey(name))
+                    || staged._stagingRemove.contains(name)) {
+                output.format(name + "\n");
+            }
+        }
+        cache.save();
 
         System.out.println(output.toString());
     }
 
+    /**
+     * Shows the changes in the working directory that are not staged:
+     * each file that would be committed, compared with its working copy.
+     * Files whose stat data shows them unchanged since they were last
+     * hashed are skipped unread.
+     * @param out where the changes are written
+     */
+    public void diff(DiffWriter out) {
+        File stagedFile = new File(System.getProperty("user.dir") + "/.gitlet/staged");
+        Stage staged = Stage.read(stagedFile);
+        File headfile = new File(System.getProperty("user.dir") + "/.gitlet/HEAD");
+        TreeMap<String, String> index =
+            new TreeMap<String, String>(Commit.read(headfile).getBlobs());
+        index.putAll(staged._stagingMap);
+        index.keySet().removeAll(staged._stagingRemove);
+        StatCache cache = StatCache.load();
+        ObjectStore store = ObjectStore.current();
+
+        for (Map.Entry<String, String> e : index.entrySet()) {
+            String name = e.getKey();
+            File file = new File(name);
+            if (!file.isFile()) {
+                out.write(name, e.getValue(), store.get(e.getValue()),
+                          null, null);
+                continue;
+            }
+            String sha = cache.hash(name);
+            if (!sha.equals(e.getValue())) {
+                out.write(name, e.getValue(), store.get(e.getValue()),
+                          sha, Utils.readContents(file));
+            }
+        }
+        cache.save();
+        out.flush();
+    }
+
+    /**
+     * Shows the changes staged for the next commit, compared with the
+     * head commit.
+     * @param out where the changes are written
+     */
+    public void diffStaged(DiffWriter out) {
+        File stagedFile = new File(System.getProperty("user.dir") + "/.gitlet/staged");
+        Stage staged = Stage.read(stagedFile);
+        File headfile = new File(System.getProperty("user.dir") + "/.gitlet/HEAD");
+        HashMap<String, String> tracked = Commit.read(headfile).getBlobs();
+
+        TreeSet<String> names = new TreeSet<String>(staged._stagingMap.keySet());
+        names.addAll(staged._stagingRemove);
+        for (String name : names) {
+            String after = staged._stagingRemove.contains(name) ? null
+                : staged._stagingMap.get(name);
+            diffBlobs(name, tracked.get(name), after, out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Shows the changes from the commit FIRST to the commit SECOND. Only
+     * the trees along changed paths are read, and only files whose blobs
+     * differ are compared.
+     * @param first abbreviated SHA-1 ID of the older commit
+     * @param second abbreviated SHA-1 ID of the newer commit
+     * @param out where the changes are written
+     */
+    public void diff(String first, String second, DiffWriter out) {
+        first = commitSearch(first);
+        second = commitSearch(second);
+        if (first.equals("null") || second.equals("null")) {
+            System.out.println("No commit with that id exists.");
+            return;
+        }
+        Commit a = Commit.read(first);
+        Commit b = Commit.read(second);
+        Set<String> names = Tree.diff(a.getTree(), b.getTree());
+        Map<String, String> before = a.getBlobs(names);
+        Map<String, String> after = b.getBlobs(names);
+        for (String name : names) {
+            diffBlobs(name, before.get(name), after.get(name), out);
+        }
+        out.flush();
+    }
+
+    /** Writes to OUT the changes to the file NAME from the blob BEFORE to
+     * the blob AFTER, either of which may be null for a missing file,
+     * unless they are the same blob. */
+    private void diffBlobs(String name, String before, String after,
+                           DiffWriter out) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        ObjectStore store = ObjectStore.current();
+        out.write(name, before, before == null ? null : store.get(before),
+                  after, after == null ? null : store.get(after));
+    }
+
     /**
      * Three possible usages of checkout.
      * @param filename Name of file that user wants to checkout
@@ -324,16 +542,12 @@ public class Gitlet {
     public void checkout(String filename) throws IOException {
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        Commit head = Commit.read(headfile);
         checkout(head.getSha(), filename);
     }
 
     /** Helper functions for checkout. */
     public void checkout(String commitID, String filename) throws IOException {
-        File stagedFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
-
         commitID = commitSearch(commitID);
 
         /** Error messages. */
@@ -342,72 +556,51 @@ public class Gitlet {
             return;
         }
 
-        File commitFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/objects/" + commitID);
-        Commit c = Utils.readObject(commitFile, Commit.class);
-        if (!c.hashMapblobs.containsKey(filename)) {
+        Commit c = Commit.read(commitID);
+        String shaFile = c.getBlob(filename);
+        if (shaFile == null) {
             System.out.println("File does not exist in that commit.");
             return;
         }
 
-        String shaFile = c.hashMapblobs.get(filename);
         File direct = new File(filename);
-        File blob = new File(System.getProperty("user.dir")
-                + "/.gitlet/objects/" + shaFile);
-
-        if (!direct.exists()) {
-            direct.createNewFile();
-        }
 
-        byte[] fileContent = Utils.readContents(blob);
-        Utils.writeContents(direct, (Object) fileContent);
+        WorkTree.copyBlob(shaFile, direct);
 
     }
 
     public void branchCheckout(String branchName) throws IOException {
         File stagedFile = new File(System.getProperty("user.dir") + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        Stage staged = Stage.read(stagedFile);
+
+        File refsFile = new File(System.getProperty("user.dir") + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        Commit head = Commit.read(headfile);
 
-        if (!staged._branches.containsKey(branchName)) {
+        if (!refs._branches.containsKey(branchName)) {
             message("No such branch exists.");
-        } else if (staged.current_branch_name.equals(branchName)) {
+        } else if (refs.current_branch_name.equals(branchName)) {
             message("No need to checkout the current branch.");
         } else {
-            File headFile_2 = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/"
-                    + staged._branches.get(branchName));
-            Commit head_2 = Utils.readObject(headFile_2, Commit.class);
-
-            Set<String> headFiles = head.hashMapblobs.keySet();
-            Set<String> headFiles_2 = head_2.hashMapblobs.keySet();
-
-            List<String> listFiles = Utils.plainFilenamesIn(System.getProperty("user.dir"));
-            for (String file : listFiles) {
-                if ((!headFiles.contains(file))
-                        && headFiles_2.contains(file)) {
-                    message("There is an untracked file in the "
-                            + "way; delete it, or add and commit it first.");
-                }
-            }
-            for (String file : headFiles) {
-                if (!headFiles_2.contains(file)) {
-                    Utils.restrictedDelete(file);
-                }
-            }
-            for (String bfile : headFiles_2) {
-                checkout(head_2.getSha(), bfile);
+            Commit head_2 = Commit.read(refs._branches.get(branchName));
+
+            if (untrackedInTheWay(head, head_2)) {
+                message("There is an untracked file in the "
+                        + "way; delete it, or add and commit it first.");
+                return;
             }
+            WorkTree.materialize(head, head_2);
 
-            if (!staged.current_branch_name.equals(branchName)) {
+            if (!refs.current_branch_name.equals(branchName)) {
                 staged._stagingMap.clear();
             }
-            staged.current_branch_name = branchName;
-            Utils.writeObject(headfile, head_2);
-            Utils.writeObject(stagedFile, staged);
+            refs.current_branch_name = branchName;
+            head_2.write(headfile);
+            staged.write(stagedFile);
+            refs.write(refsFile);
         }
     }
 
@@ -415,17 +608,15 @@ public class Gitlet {
      * Creates a new branch with the given name, and points it at the current head node.
      */
     public void branch(String branchName) {
-        File stagedFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
-        if (staged._branches.containsKey(branchName)) {
+        if (refs._branches.containsKey(branchName)) {
             message("A branch with that name already exists.");
         } else {
-            File headfile = new File(System.getProperty("user.dir") + "/.gitlet/HEAD");
-            Commit head = Utils.readObject(headfile, Commit.class);
-            staged._branches.put(branchName, head.getSha());
-            Utils.writeObject(stagedFile, staged);
+            refs._branches.put(branchName, refs.headSha());
+            refs.write(refsFile);
         }
     }
 
@@ -433,17 +624,17 @@ public class Gitlet {
      * Deletes the branch with the given name.
      */
     public void rmbranch(String branchName) {
-        File stagedFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
-        if (!staged._branches.containsKey(branchName)) {
+        if (!refs._branches.containsKey(branchName)) {
             message("A branch with that name does not exist.");
-        } else if (staged.current_branch_name.equals(branchName)) {
+        } else if (refs.current_branch_name.equals(branchName)) {
             message("Cannot remove the current branch.");
         } else {
-            staged._branches.remove(branchName);
-            Utils.writeObject(stagedFile, staged);
+            refs._branches.remove(branchName);
+            refs.write(refsFile);
         }
     }
 
@@ -458,44 +649,31 @@ public class Gitlet {
             return;
         }
 
-        List<String> listFiles = Utils.plainFilenamesIn(
-                System.getProperty("user.dir"));
-
-        File commitedFiles = new File(System.getProperty("user.dir")
-                + "/.gitlet/objects/" + commitID);
-        Commit c = Utils.readObject(commitedFiles, Commit.class);
+        Commit c = Commit.read(commitID);
 
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit head = Utils.readObject(headfile, Commit.class);
+        Commit head = Commit.read(headfile);
 
         File stagedFile = new File(System.getProperty("user.dir")
                 + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        Stage staged = Stage.read(stagedFile);
 
-        Set<String> trackedFiles = c.hashMapblobs.keySet();
-        Set<String> trackedFiles_head = head.hashMapblobs.keySet();
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
-        for (String file : listFiles) {
-            if ((!trackedFiles_head.contains(file))
-                    && trackedFiles.contains(file)) {
-                System.out.println("There is an untracked file "
-                        + "in the way; delete it, or add and commit it first.");
-                return;
-            }
-        }
-        for (String f : trackedFiles_head) {
-            if (!trackedFiles.contains(f)) {
-                Utils.restrictedDelete(f);
-            }
-        }
-        for (String file : trackedFiles) {
-            checkout(commitID, file);
+        if (untrackedInTheWay(head, c)) {
+            System.out.println("There is an untracked file "
+                    + "in the way; delete it, or add and commit it first.");
+            return;
         }
+        WorkTree.materialize(head, c);
         staged._stagingMap.clear();
-        staged._branches.put(staged.current_branch_name, commitID);
-        Utils.writeObject(headfile, c);
-        Utils.writeObject(stagedFile, staged);
+        refs._branches.put(refs.current_branch_name, commitID);
+        c.write(headfile);
+        staged.write(stagedFile);
+        refs.write(refsFile);
     }
 
 
@@ -506,42 +684,37 @@ public class Gitlet {
     public void merge(String branchName) throws IOException, ClassNotFoundException {
         File stagedFile = new File(System.getProperty("user.dir")
                 + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
+        Stage staged = Stage.read(stagedFile);
+
+        File refsFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/refs");
+        Refs refs = Refs.read(refsFile);
 
         File headfile = new File(System.getProperty("user.dir")
                 + "/.gitlet/HEAD");
-        Commit current_commit = Utils.readObject(headfile, Commit.class);
-
-        Set<String> currFiles = current_commit.hashMapblobs.keySet();
+        Commit current_commit = Commit.read(headfile);
 
         if (!staged._stagingMap.isEmpty()
-                || !Collections.disjoint(currFiles, staged._stagingRemove)) {
+                || !current_commit.getBlobs(staged._stagingRemove).isEmpty()) {
             System.out.println("You have uncommitted changes.");
             return;
-        } else if (!staged._branches.containsKey(branchName)) {
+        } else if (!refs._branches.containsKey(branchName)) {
             System.out.println("A branch with that name does not exist.");
             return;
-        } else if (branchName.equals(staged.current_branch_name)) {
+        } else if (branchName.equals(refs.current_branch_name)) {
             System.out.println("Cannot merge a branch with itself.");
             return;
         }
 
-        File fileBranch = new File(System.getProperty("user.dir")
-                + "/.gitlet/objects/" + staged._branches.get(branchName));
-        Commit input = Utils.readObject(fileBranch, Commit.class);
-
-        Set<String> inputFiles = input.hashMapblobs.keySet();
+        Commit input = Commit.read(refs._branches.get(branchName));
 
-        List<String> dirFiles = Utils.plainFilenamesIn(System.getProperty("user.dir"));
-        for (String f : dirFiles) {
-            if ((!currFiles.contains(f)) && inputFiles.contains(f)) {
-                System.out.println("There is an untracked "
-                        + "file in the way; delete it, or add and commit it first.");
-                return;
-            }
+        if (untrackedInTheWay(current_commit, input)) {
+            System.out.println("There is an untracked "
+                    + "file in the way; delete it, or add and commit it first.");
+            return;
         }
 
-        String inputHead = staged._branches.get(branchName);
+        String inputHead = refs._branches.get(branchName);
         String currHead = current_commit.getSha();
         String splitPointID = findSplitPoint(inputHead, currHead) ;
 
@@ -550,28 +723,29 @@ public class Gitlet {
                     + "of the current branch.");
             return;
         } else if (splitPointID.equals(currHead)) {
-            String currName = staged.current_branch_name;
+            String currName = refs.current_branch_name;
             branchCheckout(branchName);
-            staged.current_branch_name = currName;
-            staged._branches.put(currName, inputHead);
+            refs.current_branch_name = currName;
+            refs._branches.put(currName, inputHead);
             System.out.println("Current branch fast-forwarded.");
-            Utils.writeObject(stagedFile, staged);
+            refs.write(refsFile);
         } else {
-            File splitedFile = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/" + splitPointID);
-            Commit split = Utils.readObject(splitedFile, Commit.class);
-            Set<String> splitedFiles = split.hashMapblobs.keySet();
+            Commit split = Commit.read(splitPointID);
 
+            /** Only paths changed on at least one side since the split point
+             * can need merging; identical subtrees are skipped unread. */
             Set<String> allFiles = new HashSet<String>();
-            allFiles.addAll(splitedFiles);
-            allFiles.addAll(currFiles);
-            allFiles.addAll(inputFiles);
+            allFiles.addAll(Tree.diff(split.getTree(), current_commit.getTree()));
+            allFiles.addAll(Tree.diff(split.getTree(), input.getTree()));
+            Map<String, String> splitBlobs = split.getBlobs(allFiles);
+            Map<String, String> currBlobs = current_commit.getBlobs(allFiles);
+            Map<String, String> givenBlobs = input.getBlobs(allFiles);
             boolean conflict = false;
 
             for (String f : allFiles) {
-                String sID = split.hashMapblobs.get(f);
-                String cID = current_commit.hashMapblobs.get(f);
-                String gID = input.hashMapblobs.get(f);
+                String sID = splitBlobs.get(f);
+                String cID = currBlobs.get(f);
+                String gID = givenBlobs.get(f);
 
                 if (sID != null) {
                     if (cID != null && gID != null) {
@@ -588,149 +762,138 @@ public class Gitlet {
                     checkout(inputHead, f);
                     add(f);
                 }
-                if ((sID != null && cID != null && gID != null
-                        && !gID.equals(sID) && !gID.equals(sID)
-                        && !cID.equals(sID))
-                        || (sID == null && cID != null && gID != null
-                        && !cID.equals(gID))
-                        || (sID != null && gID == null && !sID.equals(cID))
-                        || (sID != null && cID == null && !sID.equals(gID))) {
-                    Formatter out = new Formatter();
-                    File currFile = new File(System.getProperty("user.dir")
-                            + "/.gitlet/objects/" + cID);
-                    File inputFile = new File(System.getProperty("user.dir")
-                            + "/.gitlet/objects/" + gID);
-                    String curr;
-                    String given;
-                    if (!currFile.exists()) {
-                        given = Utils.readContentsAsString(inputFile);
-                        curr = "";
-                    } else if (!inputFile.exists()) {
-                        given = "";
-                        curr = Utils.readContentsAsString(currFile);
-                    } else {
-                        given = Utils.readContentsAsString(inputFile);
-                        curr = Utils.readContentsAsString(currFile);
+                if (!Objects.equals(sID, cID) && !Objects.equals(sID, gID)
+                        && !Objects.equals(cID, gID)) {
+                    if (!mergeLines(new File(f), sID, cID, gID)) {
+                        conflict = true;
                     }
-                    out.format("<<<<<<< HEAD\n%s=======\n%s>>>>>>>\n",
-                            curr, given);
-                    String newC = out.toString();
-                    File conflicted = new File(f);
-                    Utils.writeContents(conflicted, newC);
                     add(f);
-                    conflict = true;
                 }
             }
             if (conflict) {
                 System.out.println("Encountered a merge conflict.");
             }
             String message = "Merged " + branchName + " into "
-                    + staged.current_branch_name + ".";
+                    + refs.current_branch_name + ".";
             File f = new File(System.getProperty("user.dir")
                     + "/.gitlet/staged");
             File headfile1 = new File(System.getProperty("user.dir")
                     + "/.gitlet/HEAD");
-            Commit head = Utils.readObject(headfile1, Commit.class);
+            Commit head = Commit.read(headfile1);
             Commit new_commit = new Commit(message);
             new_commit.setMergeParent(input.getSha());
             staged._stagingMap.clear();
-            staged._commitList.add(new_commit.getSha());
-            staged._branches.put(staged.current_branch_name, new_commit.getSha());
-            staged._stagingRemove.removeAll(head.hashMapblobs.keySet());
-            File commit = new File(System.getProperty("user.dir") + "/.gitlet/objects/" + new_commit.getSha());
-            Utils.writeObject(commit, new_commit);
-            Utils.writeObject(f, staged);
-            Utils.writeObject(headfile, new_commit);
+            CommitList.append(new_commit.getSha());
+            CommitIndex.update();
+            refs._branches.put(refs.current_branch_name, new_commit.getSha());
+            staged._stagingRemove.removeAll(
+                    head.getBlobs(staged._stagingRemove).keySet());
+            new_commit.store();
+            CommitGraph.update();
+            ChangedPaths.update();
+            MessageIndex.append(new_commit.getSha(), new_commit.getMessage());
+            staged.write(f);
+            refs.write(refsFile);
+            new_commit.write(headfile);
         }
     }
 
-    /**Locates the split point of two branches. */
-    public String findSplitPoint(String input, String curr) {
-        SArrayList input_hist = new SArrayList();
-        while (!input.equals("")) {
-            File inputFile = new File(System.getProperty("user.dir")
-                    + "/.gitlet/objects/" + input);
-            Commit iFile = Utils.readObject(inputFile, Commit.class);
-            input_hist.add(input);
-            input = iFile.getParent();
-        }
-        if (input_hist.contains(curr)) {
-            return curr;
-        } else {
-            boolean merge = false;
-            while (curr != null) {
-                File currFile = new File(System.getProperty("user.dir")
-                        + "/.gitlet/objects/" + curr);
-                Commit cFile = Utils.readObject(currFile, Commit.class);
-                if (cFile.getMergeParent() != null) {
-                    merge = true; break;
-                }
-                if (input_hist.contains(curr)) {
-                    return curr;
-                }
-                curr = cFile.getParent();
+    /**
+     * Packs all objects into a single pack file, storing older versions of
+     * each file as deltas from newer ones, and deletes the loose copies.
+     */
+    public void gc() {
+        ObjectStore.current().repack();
+    }
+
+    /** Replaces FILE with the three-way merge, line by line, of the blobs
+     * CURR and GIVEN, both changed from the blob SPLIT at the split point,
+     * with conflict markers around the hunks they changed differently. A
+     * file deleted on one side, or binary on any, conflicts as a whole.
+     * @param file the working file
+     * @param split the blob at the split point, or null
+     * @param curr the blob in the current branch, or null
+     * @param given the blob in the given branch, or null
+     * @return true if the merge had no conflicts */
+    private boolean mergeLines(File file, String split, String curr,
+                               String given) throws IOException {
+        if (curr == null || given == null) {
+            writeConflict(file, curr, given);
+            return false;
+        }
+        ObjectStore store = ObjectStore.current();
+        ByteBuffer base = split == null
+            ? ByteBuffer.allocate(0) : store.map(split);
+        ByteBuffer ours = store.map(curr);
+        ByteBuffer theirs = store.map(given);
+        if (LineMerge.isBinary(base) || LineMerge.isBinary(ours)
+                || LineMerge.isBinary(theirs)) {
+            writeConflict(file, curr, given);
+            return false;
+        }
+        WorkTree.makeParents(file);
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            return !new LineMerge(base, ours, theirs, out).conflicted();
+        }
+    }
+
+    /** Replaces FILE with conflict markers around the contents of the
+     * blobs CURR and GIVEN, either of which may be null for a deleted
+     * file. The blobs are streamed into FILE without being read into
+     * memory.
+     * @param file the conflicted working file
+     * @param curr the blob in the current branch, or null
+     * @param given the blob in the given branch, or null */
+    private void writeConflict(File file, String curr, String given)
+            throws IOException {
+        ObjectStore store = ObjectStore.current();
+        WorkTree.makeParents(file);
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, LineMerge.CURRENT);
+            if (curr != null) {
+                store.transferTo(curr, out);
             }
-            if (merge) {
-                File currFile = new File(System.getProperty("user.dir")
-                        + "/.gitlet/objects/" + curr);
-                Commit File = Utils.readObject(currFile, Commit.class);
-                String temp1 = File.getMergeParent();
-                String temp2 = File.getParent();
-                int index1 = 0;
-                int index2 = 0;
-                while (temp1 != null) {
-                    File tempFile = new File(System.getProperty("user.dir")
-                            + "/.gitlet/objects/" + temp1);
-                    Commit cFile = Utils.readObject(tempFile, Commit.class);
-                    if (cFile.getMergeParent() != null) {
-                        merge = true; break;
-                    }
-                    if (input_hist.contains(temp1)) {
-                        break;
-                    }
-                    temp1 = cFile.getParent();
-                    index1 ++;
-                }
-                while (temp2 != null) {
-                    File tempFile = new File(System.getProperty("user.dir")
-                            + "/.gitlet/objects/" + temp2);
-                    Commit cFile = Utils.readObject(tempFile, Commit.class);
-                    if (cFile.getMergeParent() != null) {
-                        merge = true; break;
-                    }
-                    if (input_hist.contains(temp2)) {
-                        break;
-                    }
-                    temp2 = cFile.getParent();
-                    index2 ++;
-                }
-                if (index1 > index2) {
-                    return temp2;
-                } else {
-                    return temp1;
-                }
+            writeFully(out, LineMerge.SEPARATOR);
+            if (given != null) {
+                store.transferTo(given, out);
             }
-            return "";
+            writeFully(out, LineMerge.GIVEN);
         }
     }
 
+    /** Writes TEXT to OUT in UTF-8. */
+    private static void writeFully(FileChannel out, String text)
+            throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
 
-
-
-
+    /** Locates the split point of two branches, using the commit graph so
+     * that no commit needs to be read.
+     * @param input head commit of the given branch
+     * @param curr head commit of the current branch
+     * @return SHA-1 ID of the split point, or "" if there is none */
+    public String findSplitPoint(String input, String curr) {
+        return CommitGraph.splitPoint(curr, input);
+    }
 
     /** Provides short unique sha-1 ID when calling/using methods. Abbreviated from the 40 character SHA-1 ID.
+     * Looks the prefix up in the commit index, which is brought up to date
+     * with the commit journal first.
      * @param sha abbreviated SHA-1 ID
-     * @return long version with 40 char SHA-1 ID */
+     * @return long version with 40 char SHA-1 ID, or "null" if no commit matches
+     * @throws GitletException if more than one commit matches */
     public String commitSearch(String sha) {
-        File stagedFile = new File(System.getProperty("user.dir")
-                + "/.gitlet/staged");
-        Stage staged = Utils.readObject(stagedFile, Stage.class);
-        for (String commitID : staged._commitList) {
-            if (commitID.startsWith(sha)) {
-                return commitID;
-            }
+        String commitID = CommitIndex.resolve(sha);
+        if (commitID == null) {
+            return "null";
         }
-        return "null";
+        return commitID;
     }
-}
\ No newline at end of file
+}
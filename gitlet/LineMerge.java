@@ -0,0 +1,156 @@
+package gitlet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/** A three-way merge of the lines of two versions of a file, in the manner
+ *  of diff3: each version is diffed against their common ancestor, and
+ *  hunks of the two diffs that overlap or touch are grouped. A group
+ *  changed on only one side, or changed the same way on both, is taken
+ *  as it is; a group changed differently on both sides becomes a conflict,
+ *  the lines of each side being put between conflict markers.
+ *
+ *  The versions are read from buffers, which may be mapped from the files
+ *  holding them, and the merged lines are written to a channel as they
+ *  are found, so no version and no result is copied onto the heap.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class LineMerge {
+
+    /** Marker before the current side of a conflict. */
+    static final String CURRENT = "<<<<<<< HEAD\n";
+
+    /** Marker between the two sides of a conflict. */
+    static final String SEPARATOR = "=======\n";
+
+    /** Marker after the given side of a conflict. */
+    static final String GIVEN = ">>>>>>>\n";
+
+    /** Name of the counter of files merged without conflict. */
+    static final String CLEAN = "merge-files-merged-cleanly";
+
+    /** Name of the counter of conflicting hunks. */
+    static final String CONFLICTS = "merge-conflict-hunks";
+
+    /** Where the merged contents are written. */
+    private final WritableByteChannel _out;
+
+    /** Number of conflicts in _out. */
+    private int _conflicts;
+
+    /** Returns true if DATA looks like the contents of a binary file,
+     *  which cannot be merged by lines: that is, if it holds a NUL byte. */
+    static boolean isBinary(byte[] data) {
+        return isBinary(ByteBuffer.wrap(data));
+    }
+
+    /** Returns true if the remaining bytes of DATA hold a NUL byte, as for
+     *  isBinary(byte[]). The position of DATA is not changed. */
+    static boolean isBinary(ByteBuffer data) {
+        for (int i = data.position(); i < data.limit(); i += 1) {
+            if (data.get(i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes to OUT the merge of the changes from BASE to CURR with those
+     *  from BASE to GIVEN. */
+    LineMerge(ByteBuffer base, ByteBuffer curr, ByteBuffer given,
+              WritableByteChannel out) throws IOException {
+        _out = out;
+        Diff.Lines o = new Diff.Lines(base);
+        Diff.Lines a = new Diff.Lines(curr);
+        Diff.Lines b = new Diff.Lines(given);
+        Diff.Numbering numbering = new Diff.Numbering();
+        int[] on = numbering.number(o);
+        List<Diff.Hunk> ha = Diff.diff(on, numbering.number(a));
+        List<Diff.Hunk> hb = Diff.diff(on, numbering.number(b));
+
+        int i = 0;
+        int j = 0;
+        int done = 0;
+        int shiftA = 0;
+        int shiftB = 0;
+        while (i < ha.size() || j < hb.size()) {
+            boolean fromA = j == hb.size()
+                || (i < ha.size() && ha.get(i).aStart <= hb.get(j).aStart);
+            Diff.Hunk first = fromA ? ha.get(i) : hb.get(j);
+            int lo = first.aStart;
+            int hi = first.aEnd;
+            int i0 = i;
+            int j0 = j;
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                while (i < ha.size() && ha.get(i).aStart <= hi) {
+                    hi = Math.max(hi, ha.get(i).aEnd);
+                    i += 1;
+                    grew = true;
+                }
+                while (j < hb.size() && hb.get(j).aStart <= hi) {
+                    hi = Math.max(hi, hb.get(j).aEnd);
+                    j += 1;
+                    grew = true;
+                }
+            }
+            copy(o, done, lo);
+            int aLo = i > i0 ? ha.get(i0).bStart - (ha.get(i0).aStart - lo)
+                : lo + shiftA;
+            int aHi = i > i0 ? ha.get(i - 1).bEnd + (hi - ha.get(i - 1).aEnd)
+                : hi + shiftA;
+            int bLo = j > j0 ? hb.get(j0).bStart - (hb.get(j0).aStart - lo)
+                : lo + shiftB;
+            int bHi = j > j0 ? hb.get(j - 1).bEnd + (hi - hb.get(j - 1).aEnd)
+                : hi + shiftB;
+            if (j == j0) {
+                copy(a, aLo, aHi);
+            } else if (i == i0 || a.rangeEquals(aLo, aHi, b, bLo, bHi)) {
+                copy(b, bLo, bHi);
+            } else {
+                write(CURRENT);
+                copy(a, aLo, aHi);
+                write(SEPARATOR);
+                copy(b, bLo, bHi);
+                write(GIVEN);
+                _conflicts += 1;
+            }
+            shiftA = aHi - hi;
+            shiftB = bHi - hi;
+            done = hi;
+        }
+        copy(o, done, o.count());
+        if (_conflicts == 0) {
+            Stats.add(CLEAN, 1);
+        } else {
+            Stats.add(CONFLICTS, _conflicts);
+        }
+    }
+
+    /** Appends lines FROM to TO - 1 of LINES to the result. */
+    private void copy(Diff.Lines lines, int from, int to)
+            throws IOException {
+        write(lines.bytes(from, to));
+    }
+
+    /** Appends TEXT to the result. */
+    private void write(String text) throws IOException {
+        write(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Appends the remaining bytes of BUF to the result. */
+    private void write(ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            _out.write(buf);
+        }
+    }
+
+    /** Returns true if the merge left conflicts. */
+    boolean conflicted() {
+        return _conflicts > 0;
+    }
+}
@@ -0,0 +1,169 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/** Streams log entries to standard output through one buffered writer as
+ *  the commits are read, and tracks the limits given on the command line:
+ *  at most a number of entries (-n COUNT), and only commits made at or
+ *  after a date (--since DATE) or at or before one (--until DATE). Callers
+ *  stop walking the history as soon as done() is true, which is also the
+ *  case once standard output has been closed by its reader.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class LogWriter {
+
+    /** Format of the dates in log entries. */
+    static final String DATE_FORMAT = "EEE MMM d HH:mm:ss yyyy Z";
+
+    /** Formats accepted for --since and --until, the first being a day. */
+    static final String[] LIMIT_FORMATS = {
+        "yyyy-MM-dd", "yyyy-MM-dd HH:mm", "yyyy-MM-dd HH:mm:ss",
+    };
+
+    /** Number of entries written between checks that standard output is
+     *  still open. */
+    private static final int CHECK_INTERVAL = 64;
+
+    /** Milliseconds in a day. */
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    /** The stream entries end up on. */
+    private final PrintStream _stream;
+
+    /** Buffered writer over _stream. */
+    private final BufferedWriter _out;
+
+    /** The one date format used for every entry. */
+    private final SimpleDateFormat _dates = new SimpleDateFormat(DATE_FORMAT);
+
+    /** Largest number of entries to write, or -1 for no limit. */
+    private int _limit = -1;
+
+    /** Earliest commit time to write, or null. */
+    private Date _since;
+
+    /** Latest commit time to write, or null. */
+    private Date _until;
+
+    /** Number of entries written so far. */
+    private int _written;
+
+    /** True once standard output was found to be closed. */
+    private boolean _closed;
+
+    /** A writer with no limits. */
+    LogWriter() {
+        _stream = System.out;
+        _out = new BufferedWriter(new OutputStreamWriter(_stream),
+                BlobStore.BUFFER_SIZE);
+    }
+
+    /** Returns a writer with the limits given by the options in ARGS from
+     *  index START on, or null if they are not well formed. The options
+     *  end at the first argument that is not one, whose index is stored in
+     *  NEXT[0]. */
+    static LogWriter parse(String[] args, int start, int[] next) {
+        LogWriter writer = new LogWriter();
+        int i = start;
+        while (i < args.length) {
+            if (args[i].equals("-n") && i + 1 < args.length) {
+                try {
+                    writer._limit = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException excp) {
+                    return null;
+                }
+                if (writer._limit < 0) {
+                    return null;
+                }
+            } else if (args[i].equals("--since") && i + 1 < args.length) {
+                writer._since = parseDate(args[i + 1], false);
+                if (writer._since == null) {
+                    return null;
+                }
+            } else if (args[i].equals("--until") && i + 1 < args.length) {
+                writer._until = parseDate(args[i + 1], true);
+                if (writer._until == null) {
+                    return null;
+                }
+            } else {
+                break;
+            }
+            i += 2;
+        }
+        next[0] = i;
+        return writer;
+    }
+
+    /** Returns the time given by TEXT in one of LIMIT_FORMATS, or null.
+     *  A bare day means its start, or its end if END. */
+    private static Date parseDate(String text, boolean end) {
+        for (int k = LIMIT_FORMATS.length - 1; k >= 0; k -= 1) {
+            SimpleDateFormat format = new SimpleDateFormat(LIMIT_FORMATS[k]);
+            format.setLenient(false);
+            ParsePosition pos = new ParsePosition(0);
+            Date date = format.parse(text, pos);
+            if (date == null || pos.getIndex() != text.length()) {
+                continue;
+            }
+            if (k == 0 && end) {
+                date = new Date(date.getTime() + DAY - 1);
+            }
+            return date;
+        }
+        return null;
+    }
+
+    /** Returns true if no more entries should be written. */
+    boolean done() {
+        return _closed || (_limit >= 0 && _written >= _limit);
+    }
+
+    /** Returns true if TIME is before the --since limit. */
+    boolean tooOld(Date time) {
+        return _since != null && time.before(_since);
+    }
+
+    /** Returns true if TIME is after the --until limit. */
+    boolean tooNew(Date time) {
+        return _until != null && time.after(_until);
+    }
+
+    /** Writes the log entry of COMMIT, followed by a blank line, unless it
+     *  falls outside the date limits. */
+    void write(Commit commit) {
+        if (done() || tooOld(commit.getTime()) || tooNew(commit.getTime())) {
+            return;
+        }
+        try {
+            _out.write("===\ncommit ");
+            _out.write(commit.getSha());
+            _out.write("\nDate: ");
+            _out.write(_dates.format(commit.getTime()));
+            _out.write('\n');
+            _out.write(commit.getMessage());
+            _out.write("\n\n");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _written += 1;
+        if (_written % CHECK_INTERVAL == 0) {
+            flush();
+        }
+    }
+
+    /** Writes out everything buffered so far. */
+    void flush() {
+        try {
+            _out.flush();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _closed = _stream.checkError();
+    }
+}
@@ -0,0 +1,310 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** The ObjectStore kept on disk in .gitlet/objects of the current
+ *  directory. An object is either a loose file there, or stored in one of
+ *  the packs written by gc (see Pack). Loose files are looked for first.
+ *
+ *  Loose files are spread over 256 subdirectories named by the first two
+ *  hex digits of their IDs, the file holding the rest of the ID, so that
+ *  no one directory grows too large. Repositories made before this layout
+ *  kept every object directly in .gitlet/objects; their objects are moved
+ *  into the subdirectories the first time the object directory is used,
+ *  after which the file LAYOUT_MARKER is written to it.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class LooseObjectStore implements ObjectStore {
+
+    /** Name of the file marking an object directory that uses the
+     *  fan-out layout. */
+    static final String LAYOUT_MARKER = "fanout";
+
+    /** Number of hex digits of an ID naming its subdirectory. */
+    static final int FANOUT_DIGITS = 2;
+
+    /** Name of the counter of objects moved into the fan-out layout. */
+    static final String MIGRATED = "objects-migrated";
+
+    /** Path of the object directory last found to use the fan-out
+     *  layout. */
+    private static volatile String _migrated;
+
+    /** Returns the object directory, first moving its objects into the
+     *  fan-out layout if that has not been done. */
+    private static File dir() {
+        File dir = BlobStore.objectsDir();
+        if (!dir.getPath().equals(_migrated) && migrate(dir)) {
+            _migrated = dir.getPath();
+        }
+        return dir;
+    }
+
+    /** Moves every object kept directly in DIR into its subdirectory, then
+     *  marks DIR as using the fan-out layout. Returns false if DIR does not
+     *  exist yet. Temporary files of unfinished writes are left alone. */
+    private static synchronized boolean migrate(File dir) {
+        File marker = new File(dir, LAYOUT_MARKER);
+        if (marker.isFile()) {
+            return true;
+        } else if (!dir.isDirectory()) {
+            return false;
+        }
+        String[] names = dir.list();
+        int moved = 0;
+        try {
+            for (String name : names) {
+                if (!isId(name)) {
+                    continue;
+                }
+                File dest = new File(dir, name.substring(0, FANOUT_DIGITS)
+                        + "/" + name.substring(FANOUT_DIGITS));
+                dest.getParentFile().mkdir();
+                File src = new File(dir, name);
+                if (dest.exists()) {
+                    Files.delete(src.toPath());
+                } else {
+                    Files.move(src.toPath(), dest.toPath(),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                moved += 1;
+            }
+            Files.createFile(marker.toPath());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        Stats.add(MIGRATED, moved);
+        return true;
+    }
+
+    /** Returns true if NAME is a full SHA-1 ID. */
+    private static boolean isId(String name) {
+        if (name.length() != Utils.UID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i += 1) {
+            if (Character.digit(name.charAt(i), 16) < 0
+                    || Character.isUpperCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the loose file of the object SHA, which need not exist. */
+    static File looseFile(String sha) {
+        return new File(dir(), sha.substring(0, FANOUT_DIGITS) + "/"
+                + sha.substring(FANOUT_DIGITS));
+    }
+
+    /** Returns the loose file to which the object SHA is to be written,
+     *  creating its subdirectory if needed. */
+    private static File newLooseFile(String sha) {
+        File file = looseFile(sha);
+        File sub = file.getParentFile();
+        if (!sub.isDirectory() && !sub.mkdir() && !sub.isDirectory()) {
+            throw Utils.error("Cannot create object directory %s.",
+                    sub.getName());
+        }
+        return file;
+    }
+
+    /** Returns the IDs of all loose objects, in order. */
+    List<String> looseIds() {
+        List<String> ids = new ArrayList<String>();
+        File dir = dir();
+        String[] subs = dir.list();
+        if (subs == null) {
+            return ids;
+        }
+        Arrays.sort(subs);
+        for (String sub : subs) {
+            if (sub.length() != FANOUT_DIGITS) {
+                continue;
+            }
+            String[] names = new File(dir, sub).list();
+            if (names == null) {
+                continue;
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                if (isId(sub + name)) {
+                    ids.add(sub + name);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /** Deletes the loose file of the object SHA, and its subdirectory if
+     *  that is left empty. */
+    void deleteLoose(String sha) {
+        File file = looseFile(sha);
+        if (file.delete()) {
+            file.getParentFile().delete();
+        }
+    }
+
+    @Override
+    public boolean exists(String sha) {
+        return looseFile(sha).isFile() || Pack.contains(sha);
+    }
+
+    @Override
+    public byte[] get(String sha) {
+        File loose = looseFile(sha);
+        if (loose.isFile()) {
+            return Utils.readContents(loose);
+        }
+        byte[] data = Pack.read(sha);
+        if (data == null) {
+            throw Utils.error("Object %s is missing.", sha);
+        }
+        return data;
+    }
+
+    @Override
+    public void put(String sha, byte[] data) {
+        if (!exists(sha)) {
+            writeAtomically(newLooseFile(sha), data);
+        }
+    }
+
+    /** Writes DATA to a temporary file beside FILE and renames it over
+     *  FILE, so that readers, including the parallel commit scans, see
+     *  either the old contents of FILE or all of DATA, and an interrupted
+     *  write leaves only a stray temporary file behind. */
+    static void writeAtomically(File file, byte[] data) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(file.getAbsoluteFile()
+                    .getParentFile().toPath(), BlobStore.TEMP_PREFIX, null);
+            Files.write(temp, data);
+            Files.move(temp, file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            deleteQuietly(temp);
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Reads FILE once, computing its SHA-1 while copying it to a
+     *  temporary file in the object directory, then renames the copy to
+     *  its SHA-1, which it returns. The SHA-1 is that of the bytes actually
+     *  copied, even if FILE changed since it was last hashed. */
+    @Override
+    public String put(File file) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(dir().toPath(),
+                    BlobStore.TEMP_PREFIX, null);
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            ByteBuffer buf = ByteBuffer.allocateDirect(BlobStore.BUFFER_SIZE);
+            try (FileChannel in = FileChannel.open(file.toPath(),
+                     StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temp,
+                     StandardOpenOption.WRITE)) {
+                while (in.read(buf) >= 0) {
+                    buf.flip();
+                    md.update(buf.duplicate());
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                    buf.clear();
+                }
+            }
+            String sha = CommitIndex.toHex(md.digest());
+            if (exists(sha)) {
+                Files.delete(temp);
+            } else {
+                Files.move(temp, newLooseFile(sha).toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            return sha;
+        } catch (IOException excp) {
+            deleteQuietly(temp);
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (NoSuchAlgorithmException excp) {
+            deleteQuietly(temp);
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+    }
+
+    /** Deletes the file PATH, if there is one, ignoring errors. */
+    static void deleteQuietly(Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException excp) {
+                /* Ignore; the temporary file is simply left behind. */
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(String sha) {
+        try {
+            return new FileInputStream(looseFile(sha));
+        } catch (FileNotFoundException excp) {
+            return new ByteArrayInputStream(get(sha));
+        }
+    }
+
+    /** Loose objects are mapped from their files. */
+    @Override
+    public ByteBuffer map(String sha) throws IOException {
+        try (FileChannel loose = FileChannel.open(looseFile(sha).toPath(),
+                 StandardOpenOption.READ)) {
+            return loose.map(FileChannel.MapMode.READ_ONLY, 0, loose.size());
+        } catch (NoSuchFileException excp) {
+            return ObjectStore.super.map(sha);
+        }
+    }
+
+    /** Loose objects are sent to OUT with FileChannel.transferTo, which
+     *  lets the operating system copy them without passing them through
+     *  the heap. */
+    @Override
+    public void transferTo(String sha, WritableByteChannel out)
+            throws IOException {
+        FileChannel in;
+        try {
+            in = FileChannel.open(looseFile(sha).toPath(),
+                    StandardOpenOption.READ);
+        } catch (NoSuchFileException excp) {
+            ObjectStore.super.transferTo(sha, out);
+            return;
+        }
+        try (FileChannel loose = in) {
+            long size = loose.size();
+            for (long at = 0; at < size; ) {
+                at += loose.transferTo(at, size - at, out);
+            }
+        }
+    }
+
+    @Override
+    public void repack() {
+        Pack.repack(this);
+    }
+}
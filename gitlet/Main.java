@@ -1,21 +1,54 @@
 package gitlet;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.System;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
  */
 public class Main {
     /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND> .... */
+     *  <COMMAND> <OPERAND> .... "java gitlet.Main daemon" instead serves
+     *  commands for the repository in the current directory (see Daemon),
+     *  and "java gitlet.Main batch [FILE]" runs the commands in FILE or on
+     *  the standard input (see Batch). */
 
     public static void main(String... args)
             throws IOException, ClassNotFoundException {
+        if (args.length == 1 && args[0].equals("daemon")) {
+            Daemon.serve();
+            return;
+        }
+        if (args.length >= 1 && args.length <= 2 && args[0].equals("batch")) {
+            if (!new File(".gitlet").exists()) {
+                System.out.println("Not in an initialized Gitlet directory.");
+                return;
+            }
+            try (BufferedReader in = new BufferedReader(args.length == 2
+                    ? new FileReader(args[1], StandardCharsets.UTF_8)
+                    : new InputStreamReader(System.in,
+                            StandardCharsets.UTF_8))) {
+                Batch.run(in);
+            }
+            return;
+        }
+        execute(args);
+    }
+
+    /** The command engine, kept for the life of the JVM. */
+    private static final Gitlet COMMANDS = new Gitlet();
+
+    /** Runs the command in ARGS, printing its output on System.out. */
+    static void execute(String... args)
+            throws IOException, ClassNotFoundException {
 
         File gitlet = new File(".gitlet");
-        Gitlet commands = new Gitlet();
 
         if (args.length == 0) {
             System.out.println("Please enter a command.");
@@ -24,6 +57,26 @@ public class Main {
             System.out.println("Not in an initialized Gitlet directory.");
             return;
         }
+        boolean done = false;
+        try {
+            if (!args[0].equals("init")) {
+                Refs.migrate();
+            }
+            run(COMMANDS, args);
+            done = true;
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+        } finally {
+            if (!done) {
+                ObjectCache.forgetMutable();
+            }
+            Stats.flush();
+        }
+    }
+
+    /** Runs the command in ARGS against COMMANDS. */
+    private static void run(Gitlet commands, String... args)
+            throws IOException, ClassNotFoundException {
         switch (args[0]) {
             case "init":
                 if (args.length != 1) {
@@ -33,11 +86,11 @@ public class Main {
                 commands.init();
                 break;
             case "add":
-                if (args.length != 2) {
+                if (args.length < 2) {
                     System.out.println("Incorrect operands.");
                     break;
                 }
-                commands.add(args[1]);
+                commands.add(Arrays.asList(args).subList(1, args.length));
                 break;
             case "commit":
                 if (args.length < 2) {
@@ -50,27 +103,63 @@ public class Main {
                 }
                 commands.commit(args[1]);
                 break;
-            case "log":
-                if (args.length != 1) {
+            case "log": {
+                int[] next = new int[1];
+                LogWriter out = LogWriter.parse(args, 1, next);
+                if (out != null && next[0] == args.length) {
+                    commands.log(out);
+                } else if (out != null && next[0] == args.length - 2
+                        && args[next[0]].equals("--")) {
+                    commands.log(args[next[0] + 1], out);
+                } else {
                     System.out.println("Incorrect operands.");
-                    break;
                 }
-                commands.log();
                 break;
-            case "global-log":
-                if (args.length != 1) {
+            }
+            case "global-log": {
+                int[] next = new int[1];
+                LogWriter out = LogWriter.parse(args, 1, next);
+                if (out == null || next[0] != args.length) {
                     System.out.println("Incorrect operands.");
                     break;
                 }
-                commands.globalLog();
+                commands.globalLog(out);
                 break;
+            }
             case "find":
+                if (args.length == 3 && args[1].equals("--word")) {
+                    commands.findWord(args[2]);
+                    break;
+                }
+                if (args.length == 3 && args[1].equals("--grep")) {
+                    commands.findContaining(args[2]);
+                    break;
+                }
                 if (args.length != 2) {
                     System.out.println("Incorrect operands.");
                     break;
                 }
                 commands.find(args[1]);
                 break;
+            case "diff": {
+                int i = 1;
+                boolean stat = i < args.length && args[i].equals("--stat");
+                if (stat) {
+                    i += 1;
+                }
+                DiffWriter out = new DiffWriter(stat);
+                if (i == args.length) {
+                    commands.diff(out);
+                } else if (i == args.length - 1 && (args[i].equals("--staged")
+                        || args[i].equals("--cached"))) {
+                    commands.diffStaged(out);
+                } else if (i == args.length - 2) {
+                    commands.diff(args[i], args[i + 1], out);
+                } else {
+                    System.out.println("Incorrect operands.");
+                }
+                break;
+            }
             case "rm":
                 if (args.length != 2) {
                     System.out.println("Incorrect operands.");
@@ -135,6 +224,14 @@ public class Main {
                 }
                 commands.merge(args[1]);
                 break;
+            case "gc":
+            case "repack":
+                if (args.length != 1) {
+                    System.out.println("Incorrect operands.");
+                    break;
+                }
+                commands.gc();
+                break;
             default :
                 System.out.println("No command with that name exists.");
                 break;
@@ -0,0 +1,76 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** An ObjectStore held on the heap, which lasts only as long as the JVM.
+ *  It is meant for benchmarks and tests of the commands that should not
+ *  include the cost of disk I/O: run with -Dgitlet.objects=memory in
+ *  batch mode or as a daemon. Objects it does not hold are read once from
+ *  a backing store, which is never written, so the repository's HEAD,
+ *  refs and staging area are left naming objects that exist only in
+ *  memory. Use it on a scratch copy of a repository.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class MemoryObjectStore implements ObjectStore {
+
+    /** The contents of each object, by SHA-1 ID. */
+    private final ConcurrentHashMap<String, byte[]> _objects =
+        new ConcurrentHashMap<String, byte[]>();
+
+    /** The store objects not yet in memory are read from, or null. */
+    private final ObjectStore _backing;
+
+    /** An empty store reading objects it does not hold from BACKING, if
+     *  that is not null. */
+    MemoryObjectStore(ObjectStore backing) {
+        _backing = backing;
+    }
+
+    @Override
+    public boolean exists(String sha) {
+        return _objects.containsKey(sha)
+            || (_backing != null && _backing.exists(sha));
+    }
+
+    @Override
+    public byte[] get(String sha) {
+        byte[] data = _objects.get(sha);
+        if (data != null) {
+            return data;
+        } else if (_backing == null) {
+            throw Utils.error("Object %s is missing.", sha);
+        }
+        data = _backing.get(sha);
+        _objects.putIfAbsent(sha, data);
+        return data;
+    }
+
+    @Override
+    public void put(String sha, byte[] data) {
+        if (!exists(sha)) {
+            _objects.putIfAbsent(sha, data);
+        }
+    }
+
+    @Override
+    public String put(File file) {
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            String sha = Utils.sha1((Object) data);
+            put(sha, data);
+            return sha;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream open(String sha) {
+        return new ByteArrayInputStream(get(sha));
+    }
+}
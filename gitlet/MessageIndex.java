@@ -0,0 +1,310 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/** The messages of all commits, kept in .gitlet/message-index in journal
+ *  order so that find can answer without reading any commit.
+ *
+ *  The file is a header holding the number of messages and the offset just
+ *  past the last of them, followed by the messages themselves. New
+ *  messages are written at that offset and the header is rewritten last,
+ *  so a crash part way through an update leaves the previous index intact.
+ *  Committing appends just the new message (see append); only find loads
+ *  the index (see load), building a table from each message to the journal
+ *  positions of the commits that have it and, on first use, a table from
+ *  each word to the positions of the messages that contain it. The loaded
+ *  index is kept for the life of the process, as in the daemon, and later
+ *  loads add only the messages appended since to both tables.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class MessageIndex {
+
+    /** Magic number at the start of the index file ("GMSG"). */
+    static final int MAGIC = 0x474d5347;
+
+    /** Version of the index layout. */
+    static final int VERSION = 1;
+
+    /** Length of the header: magic, version, count and end offset. */
+    static final int HEADER_BYTES = 20;
+
+    /** The index loaded last, or null. */
+    private static MessageIndex _loaded;
+
+    /** Absolute path of the file this index was read from. */
+    private final String _path;
+
+    /** Offset in the file just past the last message read. */
+    private long _end = HEADER_BYTES;
+
+    /** Messages by journal position. */
+    private final List<String> _messages = new ArrayList<String>();
+
+    /** Journal positions of the commits with each message. */
+    private final HashMap<String, List<Integer>> _exact =
+        new HashMap<String, List<Integer>>();
+
+    /** Journal positions of the commits whose message contains each
+     *  lower-case word, or null until a word is first looked up. */
+    private HashMap<String, TreeSet<Integer>> _words;
+
+    /** An empty index of the file PATH. */
+    private MessageIndex(String path) {
+        _path = path;
+    }
+
+    /** Adds MESSAGE, the message of the next commit in the journal. */
+    private void add(String message) {
+        int i = _messages.size();
+        _messages.add(message);
+        List<Integer> same = _exact.get(message);
+        if (same == null) {
+            same = new ArrayList<Integer>(1);
+            _exact.put(message, same);
+        }
+        same.add(i);
+        if (_words != null) {
+            addWords(i);
+        }
+    }
+
+    /** Adds the words of the message at journal position I to _words. */
+    private void addWords(int i) {
+        for (String w : words(_messages.get(i))) {
+            TreeSet<Integer> has = _words.get(w);
+            if (has == null) {
+                has = new TreeSet<Integer>();
+                _words.put(w, has);
+            }
+            has.add(i);
+        }
+    }
+
+    /** Returns the index file. */
+    static File indexFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/message-index");
+    }
+
+    /** Adds MESSAGE, the message of the commit SHA just appended to the
+     *  journal, to the index without reading any commit or message already
+     *  held. Commits the index missed before SHA, as in a repository made
+     *  before it existed, are read and added first. */
+    static void append(String sha, String message) {
+        List<String> commits = CommitList.read();
+        try (FileChannel io = open()) {
+            long[] header = readHeader(io);
+            int count = (int) header[0];
+            if (count >= commits.size()) {
+                return;
+            }
+            int last = commits.size() - 1;
+            boolean isLast = commits.get(last).equals(sha);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeMessages(out, commits.subList(count,
+                    isLast ? last : commits.size()));
+            if (isLast) {
+                CommitCodec.writeString(out, message);
+            }
+            write(io, header[1], commits.size(), out.toByteArray());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Drops the messages of all but the first COUNT commits. */
+    static synchronized void truncate(int count) {
+        try (FileChannel io = open()) {
+            long[] header = readHeader(io);
+            if (header[0] <= count) {
+                return;
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) header[1]);
+            while (buf.hasRemaining()) {
+                if (io.read(buf, buf.position()) < 0) {
+                    throw Utils.error("Corrupt message index.");
+                }
+            }
+            buf.position(HEADER_BYTES);
+            for (int i = 0; i < count; i += 1) {
+                CommitCodec.readString(buf);
+            }
+            write(io, buf.position(), count, new byte[0]);
+        } catch (BufferUnderflowException excp) {
+            throw Utils.error("Corrupt message index.");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the index of every commit in the journal, first adding the
+     *  messages of any commits it misses. If the index loaded last is of
+     *  the same file, only the messages appended to the file since are
+     *  read, and added to it. */
+    static synchronized MessageIndex load() {
+        List<String> commits = CommitList.read();
+        String path = indexFile().getAbsolutePath();
+        try (FileChannel io = open()) {
+            long[] header = readHeader(io);
+            if (header[0] < commits.size()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                writeMessages(out,
+                        commits.subList((int) header[0], commits.size()));
+                write(io, header[1], commits.size(), out.toByteArray());
+                header = readHeader(io);
+            }
+            MessageIndex index = _loaded;
+            if (index == null || !index._path.equals(path)
+                    || index.size() > header[0] || index._end > header[1]) {
+                index = new MessageIndex(path);
+            }
+            index.read(io, (int) header[0], header[1]);
+            _loaded = index;
+            return index;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Opens the index file for reading and writing, creating it if
+     *  needed. */
+    private static FileChannel open() throws IOException {
+        return FileChannel.open(indexFile().toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /** Returns the number of messages in the index open on IO and the
+     *  offset just past the last of them: 0 and HEADER_BYTES if the index
+     *  is empty or was written by another version. */
+    private static long[] readHeader(FileChannel io) throws IOException {
+        if (io.size() >= HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            io.read(header, 0);
+            header.flip();
+            if (header.getInt() == MAGIC && header.getInt() == VERSION) {
+                int count = header.getInt();
+                return new long[] { count, header.getLong() };
+            }
+        }
+        return new long[] { 0, HEADER_BYTES };
+    }
+
+    /** Writes the messages of the commits COMMITS to OUT, in order. */
+    private static void writeMessages(ByteArrayOutputStream out,
+                                      List<String> commits) {
+        Iterator<Commit> added = CommitScan.ordered(commits);
+        while (added.hasNext()) {
+            CommitCodec.writeString(out, added.next().getMessage());
+        }
+    }
+
+    /** Writes the encoded messages RECS at offset END of the index open on
+     *  IO, then the header saying it holds COUNT messages. */
+    private static void write(FileChannel io, long end, int count,
+                              byte[] recs) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(recs);
+        io.truncate(end);
+        long at = end;
+        while (buf.hasRemaining()) {
+            at += io.write(buf, at);
+        }
+        io.force(false);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putLong(at)
+            .flip();
+        io.write(header, 0);
+        io.force(true);
+    }
+
+    /** Returns the number of messages in this index. */
+    private synchronized int size() {
+        return _messages.size();
+    }
+
+    /** Reads the messages after the ones already held from the index
+     *  file open on IO, which holds COUNT messages ending at offset END. */
+    private synchronized void read(FileChannel io, int count, long end)
+            throws IOException {
+        if (count == _messages.size()) {
+            return;
+        }
+        if (end > io.size()) {
+            throw Utils.error("Corrupt message index.");
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - _end));
+        while (buf.hasRemaining()) {
+            if (io.read(buf, _end + buf.position()) < 0) {
+                throw Utils.error("Corrupt message index.");
+            }
+        }
+        buf.flip();
+        try {
+            while (_messages.size() < count) {
+                add(CommitCodec.readString(buf));
+            }
+        } catch (BufferUnderflowException excp) {
+            throw Utils.error("Corrupt message index.");
+        }
+        _end = end;
+    }
+
+    /** Returns the journal positions, in order, of the commits whose
+     *  message is exactly MESSAGE. */
+    synchronized List<Integer> exact(String message) {
+        List<Integer> same = _exact.get(message);
+        return same == null ? new ArrayList<Integer>()
+            : new ArrayList<Integer>(same);
+    }
+
+    /** Returns the journal positions, in order, of the commits whose
+     *  message contains the word WORD, ignoring case. Words are maximal
+     *  runs of letters and digits. */
+    synchronized List<Integer> word(String word) {
+        if (_words == null) {
+            _words = new HashMap<String, TreeSet<Integer>>();
+            for (int i = 0; i < _messages.size(); i += 1) {
+                addWords(i);
+            }
+        }
+        TreeSet<Integer> has = _words.get(word.toLowerCase(Locale.ROOT));
+        return has == null ? new ArrayList<Integer>()
+            : new ArrayList<Integer>(has);
+    }
+
+    /** Returns the journal positions, in order, of the commits whose
+     *  message contains TEXT. Each distinct message is searched once. */
+    synchronized List<Integer> containing(String text) {
+        TreeSet<Integer> has = new TreeSet<Integer>();
+        for (String message : _exact.keySet()) {
+            if (message.contains(text)) {
+                has.addAll(_exact.get(message));
+            }
+        }
+        return new ArrayList<Integer>(has);
+    }
+
+    /** Returns the lower-case words of MESSAGE. */
+    private static List<String> words(String message) {
+        List<String> result = new ArrayList<String>();
+        for (String w : message.toLowerCase(Locale.ROOT)
+                 .split("[^\\p{L}\\p{N}]+")) {
+            if (!w.isEmpty()) {
+                result.add(w);
+            }
+        }
+        return result;
+    }
+}
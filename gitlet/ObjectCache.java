@@ -0,0 +1,178 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/** A bounded in-memory cache of decoded commits, staging areas, refs and
+ *  the stat cache, keyed by the SHA-1 ID of the object or the absolute
+ *  path of the file they were read from and evicting the least recently
+ *  used entry once it holds CAPACITY of them.
+ *
+ *  Objects in the ObjectStore never change, so their entries are always
+ *  valid. Files, such as HEAD and the staging area, are rewritten in
+ *  place: their entries are replaced whenever they are written through
+ *  the cache and checked against the file's modification time and length
+ *  on every read. Callers change these objects in place before writing
+ *  them back, so their entries are dropped after a command that fails
+ *  part way.
+ *
+ *  While writes are deferred, as in batch mode, writing one of these files
+ *  only updates its entry, which is then dirty: it is trusted without
+ *  looking at the file and never evicted, until checkpoint() writes all
+ *  dirty entries out or rollback() drops them.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class ObjectCache {
+
+    /** Largest number of entries kept. */
+    static final int CAPACITY = 1024;
+
+    /** Name of the counter of reads answered from the cache. */
+    static final String HITS = "object-cache-hits";
+
+    /** Name of the counter of reads that had to decode the file. */
+    static final String MISSES = "object-cache-misses";
+
+    /** A decoded object and the stat data of the file it came from. */
+    private static class Entry {
+        /** The decoded object. */
+        private final Object value;
+        /** Modification time of the file, or -1 if it cannot change. */
+        private final long mtime;
+        /** Length of the file, or -1 if it cannot change. */
+        private final long length;
+        /** Writes the value to its file, if that is still to be done. */
+        private final Consumer<File> pending;
+
+        /** An entry holding VALUE read from a file with stat data MTIME
+         *  and LENGTH, still to be written by PENDING if that is not
+         *  null. */
+        Entry(Object value, long mtime, long length,
+              Consumer<File> pending) {
+            this.value = value;
+            this.mtime = mtime;
+            this.length = length;
+            this.pending = pending;
+        }
+    }
+
+    /** Entries by SHA-1 ID or absolute path, least recently used first. */
+    private static final LinkedHashMap<String, Entry> ENTRIES =
+        new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> e) {
+                return size() > CAPACITY && e.getValue().pending == null;
+            }
+        };
+
+    /** True while writes of files that may change are deferred. */
+    private static boolean _deferred;
+
+    /** Returns the object of class TYPE stored in FILE, decoding the file
+     *  with DECODE unless a valid entry is cached. */
+    static <T> T read(File file, Class<T> type, Function<File, T> decode) {
+        String key = file.getAbsolutePath();
+        synchronized (ObjectCache.class) {
+            Entry e = ENTRIES.get(key);
+            if (e != null && type.isInstance(e.value)
+                    && (e.pending != null
+                        || (e.mtime == file.lastModified()
+                            && e.length == file.length()))) {
+                Stats.add(HITS, 1);
+                return type.cast(e.value);
+            }
+        }
+        Stats.add(MISSES, 1);
+        T value = decode.apply(file);
+        put(file, value);
+        return value;
+    }
+
+    /** Writes VALUE to FILE with WRITER, or only records it as the
+     *  contents of FILE if writes are deferred. */
+    static void write(File file, Object value, Consumer<File> writer) {
+        synchronized (ObjectCache.class) {
+            if (_deferred) {
+                ENTRIES.put(file.getAbsolutePath(),
+                        new Entry(value, 0, 0, writer));
+                return;
+            }
+        }
+        writer.accept(file);
+        put(file, value);
+    }
+
+    /** Caches VALUE as the contents of FILE. */
+    private static synchronized void put(File file, Object value) {
+        ENTRIES.put(file.getAbsolutePath(),
+                new Entry(value, file.lastModified(), file.length(), null));
+    }
+
+    /** Returns the object of class TYPE stored as the object SHA, decoding
+     *  it with DECODE unless it is cached. */
+    static <T> T readObject(String sha, Class<T> type,
+                            Function<String, T> decode) {
+        synchronized (ObjectCache.class) {
+            Entry e = ENTRIES.get(sha);
+            if (e != null && type.isInstance(e.value)) {
+                Stats.add(HITS, 1);
+                return type.cast(e.value);
+            }
+        }
+        Stats.add(MISSES, 1);
+        T value = decode.apply(sha);
+        putObject(sha, value);
+        return value;
+    }
+
+    /** Caches VALUE as the object SHA. */
+    static synchronized void putObject(String sha, Object value) {
+        ENTRIES.put(sha, new Entry(value, -1, -1, null));
+    }
+
+    /** Drops the entries of files that may change, as after a command
+     *  that failed, except those still to be written. */
+    static synchronized void forgetMutable() {
+        Iterator<Entry> it = ENTRIES.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.mtime != -1 && e.pending == null) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Defers writes of files that may change until the next
+     *  checkpoint. */
+    static synchronized void defer() {
+        _deferred = true;
+    }
+
+    /** Writes out every deferred write, in the order the files were last
+     *  used. */
+    static synchronized void checkpoint() {
+        for (Map.Entry<String, Entry> e : ENTRIES.entrySet()) {
+            if (e.getValue().pending != null) {
+                File file = new File(e.getKey());
+                e.getValue().pending.accept(file);
+                e.setValue(new Entry(e.getValue().value,
+                        file.lastModified(), file.length(), null));
+            }
+        }
+    }
+
+    /** Drops every deferred write and every entry of a file that may
+     *  change. */
+    static synchronized void rollback() {
+        Iterator<Entry> it = ENTRIES.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().mtime != -1) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,612 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/** A pack of objects written by gc, in .gitlet/packs: a pack file holding
+ *  the objects and an index file locating them. The index is read in place
+ *  through a memory map; the pack file, which may be larger than a buffer
+ *  can address, is read an object at a time at its long offset.
+ *
+ *  The pack file is a header (magic, version and object count), the
+ *  objects, and the SHA-1 of everything before it. Each object is a type
+ *  byte, the varint size of its contents and, for a DELTA, the raw SHA-1
+ *  of its base, which is in the same pack, followed by the varint length
+ *  of its DEFLATE-compressed
+ *  data: the contents of a FULL object, or the Delta that turns the
+ *  contents of the base into those of the object.
+ *
+ *  The index file is a header (magic, version and object count), a
+ *  256-entry fan-out table of the number of IDs whose first byte is at
+ *  most each value, the raw IDs in order, and the offset of each object in
+ *  the pack file.
+ *
+ *  The SHA-1 at the end of a pack file is checked the first time an object
+ *  is read from it in a process, which reads the whole file once.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Pack {
+
+    /** Magic number at the start of a pack file ("GPAK"). */
+    static final int MAGIC = 0x4750414b;
+
+    /** Magic number at the start of an index file ("GPIX"). */
+    static final int INDEX_MAGIC = 0x47504958;
+
+    /** Version of the pack and index layouts. */
+    static final int VERSION = 1;
+
+    /** Length of the headers of both files. */
+    static final int HEADER_BYTES = 12;
+
+    /** Object type: stored whole. */
+    static final int FULL = 0;
+
+    /** Object type: stored as a delta from another object. */
+    static final int DELTA = 1;
+
+    /** Longest chain of deltas to be followed to read an object. */
+    static final int MAX_DEPTH = 16;
+
+    /** Name of the counter of objects packed by gc. */
+    static final String PACKED = "gc-objects-packed";
+
+    /** Name of the counter of objects gc stored as deltas. */
+    static final String DELTAS = "gc-objects-deltified";
+
+    /** Name of the counter of objects read from packs. */
+    static final String READS = "pack-objects-read";
+
+    /** Longest header of an object in a pack file: the type byte, two
+     *  varints of at most 10 bytes and the raw SHA-1 of a base. */
+    private static final int MAX_ENTRY_HEADER =
+        1 + 2 * 10 + CommitIndex.SHA_BYTES;
+
+    /** The packs of the repository, or null if not loaded yet. */
+    private static List<Pack> _packs;
+
+    /** The pack directory and its modification time when _packs was
+     *  loaded. */
+    private static String _loadedFrom;
+
+    /** The index file. */
+    private final File _indexFile;
+
+    /** The pack file. */
+    private final File _dataFile;
+
+    /** The mapped index file. */
+    private final MappedByteBuffer _index;
+
+    /** The pack file, open for positional reads, which several threads
+     *  may make at once. */
+    private final FileChannel _data;
+
+    /** Number of objects. */
+    private final int _count;
+
+    /** True once the SHA-1 at the end of the pack file has been checked. */
+    private volatile boolean _verified;
+
+    /** The pack with index file INDEXFILE, mapped as INDEX, and pack file
+     *  DATAFILE, open as DATA. */
+    private Pack(File indexFile, MappedByteBuffer index, File dataFile,
+                 FileChannel data) throws IOException {
+        _indexFile = indexFile;
+        _dataFile = dataFile;
+        _index = index;
+        _data = data;
+        ByteBuffer header = read(0, HEADER_BYTES);
+        if (index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION
+                || header.remaining() < HEADER_BYTES
+                || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw Utils.error("Corrupt pack.");
+        }
+        _count = index.getInt(8);
+    }
+
+    /** Returns the pack directory. */
+    static File packsDir() {
+        return new File(System.getProperty("user.dir") + "/.gitlet/packs");
+    }
+
+    /** Returns the packs of the repository, reloading them if the pack
+     *  directory changed since they were loaded. */
+    private static synchronized List<Pack> all() {
+        File dir = packsDir();
+        String from = dir.getAbsolutePath() + ":" + dir.lastModified();
+        if (_packs != null && from.equals(_loadedFrom)) {
+            return _packs;
+        }
+        close(_packs);
+        List<Pack> packs = new ArrayList<Pack>();
+        String[] names = dir.list();
+        if (names != null) {
+            Arrays.sort(names);
+            for (String name : names) {
+                if (name.endsWith(".idx")) {
+                    String base = name.substring(0, name.length() - 4);
+                    packs.add(open(new File(dir, name),
+                            new File(dir, base + ".pack")));
+                }
+            }
+        }
+        _packs = packs;
+        _loadedFrom = from;
+        return packs;
+    }
+
+    /** Returns the pack with index file INDEX and pack file DATA. */
+    private static Pack open(File index, File data) {
+        FileChannel pack = null;
+        try (FileChannel idx = FileChannel.open(index.toPath(),
+                 StandardOpenOption.READ)) {
+            pack = FileChannel.open(data.toPath(), StandardOpenOption.READ);
+            Pack result = new Pack(index, idx.map(FileChannel.MapMode.READ_ONLY,
+                                                  0, idx.size()),
+                                   data, pack);
+            pack = null;
+            return result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            close(pack);
+        }
+    }
+
+    /** Closes the pack files of PACKS, if it is not null. */
+    private static void close(List<Pack> packs) {
+        if (packs != null) {
+            for (Pack pack : packs) {
+                close(pack._data);
+            }
+        }
+    }
+
+    /** Closes CHANNEL, if it is not null, ignoring errors. */
+    private static void close(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException excp) {
+                /* Ignore; the pack is no longer read. */
+            }
+        }
+    }
+
+    /** Returns up to LENGTH bytes of the pack file starting at POSITION,
+     *  fewer only if the file ends first. */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (_data.read(buf, position + buf.position()) < 0) {
+                break;
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /** Returns true if a pack holds the object SHA. */
+    static boolean contains(String sha) {
+        byte[] raw = CommitIndex.toRaw(sha);
+        for (Pack pack : all()) {
+            if (pack.find(raw) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the contents of the object SHA, or null if no pack holds
+     *  it. */
+    static byte[] read(String sha) {
+        byte[] raw = CommitIndex.toRaw(sha);
+        for (Pack pack : all()) {
+            int i = pack.find(raw);
+            if (i >= 0) {
+                Stats.add(READS, 1);
+                pack.verify();
+                return pack.readAt(pack.offset(i));
+            }
+        }
+        return null;
+    }
+
+    /** Checks, once, that the pack file ends with the SHA-1 of everything
+     *  before it, throwing a GitletException if it does not. */
+    private void verify() {
+        if (_verified) {
+            return;
+        }
+        synchronized (this) {
+            if (_verified) {
+                return;
+            }
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                long end = _data.size() - CommitIndex.SHA_BYTES;
+                if (end < HEADER_BYTES) {
+                    throw Utils.error("Corrupt pack.");
+                }
+                ByteBuffer buf = ByteBuffer.allocate(BlobStore.BUFFER_SIZE);
+                for (long at = 0; at < end; ) {
+                    buf.clear();
+                    buf.limit((int) Math.min(buf.capacity(), end - at));
+                    int n = _data.read(buf, at);
+                    if (n < 0) {
+                        throw Utils.error("Corrupt pack.");
+                    }
+                    buf.flip();
+                    md.update(buf);
+                    at += n;
+                }
+                ByteBuffer trailer = read(end, CommitIndex.SHA_BYTES);
+                if (!ByteBuffer.wrap(md.digest()).equals(trailer)) {
+                    throw Utils.error("Corrupt pack.");
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            } catch (NoSuchAlgorithmException excp) {
+                throw new IllegalArgumentException(
+                        "System does not support SHA-1");
+            }
+            _verified = true;
+        }
+    }
+
+    /** Returns the index of the raw ID RAW in this pack, or -1. */
+    private int find(byte[] raw) {
+        int first = raw[0] & 0xff;
+        int lo = first == 0 ? 0 : _index.getInt(HEADER_BYTES + 4 * (first - 1));
+        int hi = _index.getInt(HEADER_BYTES + 4 * first) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareId(mid, raw);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Compares the ID at index I with RAW. */
+    private int compareId(int i, byte[] raw) {
+        int at = idsStart() + i * CommitIndex.SHA_BYTES;
+        for (int k = 0; k < CommitIndex.SHA_BYTES; k += 1) {
+            int c = Integer.compare(_index.get(at + k) & 0xff, raw[k] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the offset in the index file of the first ID. */
+    private static int idsStart() {
+        return HEADER_BYTES + 256 * 4;
+    }
+
+    /** Returns the offset in the pack file of the object at index I. */
+    private long offset(int i) {
+        return _index.getLong(idsStart() + _count * CommitIndex.SHA_BYTES
+                              + i * 8);
+    }
+
+    /** Returns the contents of the object at OFFSET in the pack file. */
+    private byte[] readAt(long offset) {
+        ByteBuffer in;
+        ByteBuffer packed;
+        int type;
+        int size;
+        String base = null;
+        try {
+            in = read(offset, MAX_ENTRY_HEADER);
+            type = in.get();
+            size = (int) CommitCodec.readVarint(in);
+            if (type == DELTA) {
+                base = CommitCodec.readSha(in);
+            } else if (type != FULL) {
+                throw Utils.error("Corrupt pack.");
+            }
+            long length = CommitCodec.readVarint(in);
+            if (size < 0 || length < 0 || length > Integer.MAX_VALUE) {
+                throw Utils.error("Corrupt pack.");
+            }
+            packed = read(offset + in.position(), (int) length);
+            if (packed.remaining() != length) {
+                throw Utils.error("Corrupt pack.");
+            }
+        } catch (BufferUnderflowException excp) {
+            throw Utils.error("Corrupt pack.");
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        byte[] data = inflate(packed, type == FULL ? size : -1);
+        if (type == FULL) {
+            return data;
+        }
+        int at = find(CommitIndex.toRaw(base));
+        if (at < 0) {
+            throw Utils.error("Corrupt pack.");
+        }
+        return Delta.apply(readAt(offset(at)), data);
+    }
+
+    /** Returns the inflated contents of IN, which are SIZE bytes long, or
+     *  of unknown length if SIZE is -1. */
+    private static byte[] inflate(ByteBuffer in, int size) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    size >= 0 ? size : BlobStore.BUFFER_SIZE);
+            byte[] buf = new byte[BlobStore.BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput()
+                               || inflater.needsDictionary())) {
+                    throw Utils.error("Corrupt pack.");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException excp) {
+            throw Utils.error("Corrupt pack.");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Packs every loose object and every object in an existing pack into
+     *  one new pack, then deletes the old packs and the loose files of the
+     *  objects packed. Only the files of the packs read are deleted, so
+     *  the temporary files of another gc running at once are left
+     *  alone. Each blob is stored as a delta from the next newer
+     *  version of the same path if that is much smaller, so the latest
+     *  version of each file is stored whole. */
+    static void repack(LooseObjectStore store) {
+        TreeSet<String> ids = new TreeSet<String>(store.looseIds());
+        List<Pack> old = all();
+        for (Pack pack : old) {
+            for (int i = 0; i < pack._count; i += 1) {
+                byte[] raw = new byte[CommitIndex.SHA_BYTES];
+                pack._index.get(idsStart() + i * CommitIndex.SHA_BYTES, raw);
+                ids.add(CommitIndex.toHex(raw));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<String, String> bases = chooseBases(ids);
+
+        File dir = packsDir();
+        dir.mkdirs();
+        File tempPack = null;
+        File tempIndex = null;
+        try {
+            tempPack = Files.createTempFile(dir.toPath(),
+                    BlobStore.TEMP_PREFIX, null).toFile();
+            tempIndex = Files.createTempFile(dir.toPath(),
+                    BlobStore.TEMP_PREFIX, null).toFile();
+            long[] offsets = writePack(store, tempPack, ids, bases);
+            String name = "pack-" + BlobStore.hash(tempPack);
+            File newPack = new File(dir, name + ".pack");
+            File newIndex = new File(dir, name + ".idx");
+            writeIndex(tempIndex, ids, offsets);
+            Files.move(tempPack.toPath(), newPack.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempIndex.toPath(), newIndex.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+            for (Pack pack : old) {
+                if (!pack._indexFile.equals(newIndex)) {
+                    Files.deleteIfExists(pack._indexFile.toPath());
+                    Files.deleteIfExists(pack._dataFile.toPath());
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deleteTemp(tempPack);
+            deleteTemp(tempIndex);
+        }
+        for (String id : ids) {
+            store.deleteLoose(id);
+        }
+        synchronized (Pack.class) {
+            close(_packs);
+            _packs = null;
+        }
+        Stats.add(PACKED, ids.size());
+    }
+
+    /** Deletes FILE, a temporary file of repack, if it is not null and
+     *  was not moved into place. */
+    private static void deleteTemp(File file) {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /** Returns a map from some of the objects in IDS to the object each is
+     *  best stored as a delta from: for every path in the history, each
+     *  version's blob maps to the blob of the next newer version. Chains are
+     *  cut so that none is longer than MAX_DEPTH and none is a cycle. */
+    private static Map<String, String> chooseBases(TreeSet<String> ids) {
+        HashMap<String, String> bases = new HashMap<String, String>();
+        HashMap<String, String> latest = new HashMap<String, String>();
+        Iterator<Commit> commits = CommitScan.ordered(CommitList.read());
+        while (commits.hasNext()) {
+            Commit c = commits.next();
+            String parentTree = c.getParent().isEmpty() ? null
+                : Commit.read(c.getParent()).getTree();
+            for (String path : Tree.diff(parentTree, c.getTree())) {
+                String blob = Tree.lookup(c.getTree(), path);
+                if (blob == null) {
+                    continue;
+                }
+                String older = latest.put(path, blob);
+                if (older != null && !older.equals(blob)
+                        && !bases.containsKey(older) && ids.contains(older)
+                        && ids.contains(blob) && !reaches(bases, blob, older)) {
+                    bases.put(older, blob);
+                }
+            }
+        }
+        HashMap<String, Integer> depths = new HashMap<String, Integer>();
+        for (String id : new ArrayList<String>(bases.keySet())) {
+            List<String> chain = new ArrayList<String>();
+            String x = id;
+            while (x != null && !depths.containsKey(x)) {
+                chain.add(x);
+                x = bases.get(x);
+            }
+            int depth = x == null ? -1 : depths.get(x);
+            for (int k = chain.size() - 1; k >= 0; k -= 1) {
+                depth += 1;
+                if (depth > MAX_DEPTH) {
+                    bases.remove(chain.get(k));
+                    depth = 0;
+                }
+                depths.put(chain.get(k), depth);
+            }
+        }
+        return bases;
+    }
+
+    /** Returns true if following BASES from FROM leads to TO. */
+    private static boolean reaches(Map<String, String> bases, String from,
+                                   String to) {
+        for (String x = from; x != null; x = bases.get(x)) {
+            if (x.equals(to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes the objects IDS, read from STORE, to the pack file FILE,
+     *  storing those in BASES as deltas where that is much smaller, and
+     *  returns the offset of each object in the order of IDS. */
+    private static long[] writePack(LooseObjectStore store, File file,
+                                    TreeSet<String> ids,
+                                    Map<String, String> bases)
+            throws IOException {
+        long[] offsets = new long[ids.size()];
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException(
+                    "System does not support SHA-1");
+        }
+        try (OutputStream out = new DigestOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(file),
+                         BlobStore.BUFFER_SIZE), md)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(ids.size());
+            out.write(header.array());
+            long at = HEADER_BYTES;
+            int i = 0;
+            for (String id : ids) {
+                offsets[i] = at;
+                i += 1;
+                byte[] data = store.get(id);
+                String base = bases.get(id);
+                byte[] body = data;
+                if (base != null) {
+                    byte[] delta = Delta.encode(store.get(base), data);
+                    if (delta.length < data.length / 2) {
+                        body = delta;
+                        Stats.add(DELTAS, 1);
+                    } else {
+                        base = null;
+                    }
+                }
+                ByteArrayOutputStream entry = new ByteArrayOutputStream();
+                entry.write(base == null ? FULL : DELTA);
+                CommitCodec.writeVarint(entry, data.length);
+                if (base != null) {
+                    CommitCodec.writeSha(entry, base);
+                }
+                byte[] packed = deflate(body);
+                CommitCodec.writeVarint(entry, packed.length);
+                entry.write(packed, 0, packed.length);
+                entry.writeTo(out);
+                at += entry.size();
+            }
+            out.flush();
+            ((DigestOutputStream) out).on(false);
+            out.write(md.digest());
+        }
+        return offsets;
+    }
+
+    /** Returns DATA compressed with DEFLATE. */
+    private static byte[] deflate(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream z = new DeflaterOutputStream(out, deflater)) {
+            z.write(data);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /** Writes the index file FILE for a pack holding the objects IDS at
+     *  OFFSETS. */
+    private static void writeIndex(File file, TreeSet<String> ids,
+                                   long[] offsets) {
+        ByteBuffer index = ByteBuffer.allocate(idsStart()
+                + ids.size() * (CommitIndex.SHA_BYTES + 8));
+        index.putInt(INDEX_MAGIC).putInt(VERSION).putInt(ids.size());
+        int[] fanout = new int[256];
+        for (String id : ids) {
+            fanout[Integer.parseInt(id.substring(0, 2), 16)] += 1;
+        }
+        int total = 0;
+        for (int b = 0; b < 256; b += 1) {
+            total += fanout[b];
+            index.putInt(total);
+        }
+        for (String id : ids) {
+            index.put(CommitIndex.toRaw(id));
+        }
+        for (long offset : offsets) {
+            index.putLong(offset);
+        }
+        Utils.writeContents(file, (Object) index.array());
+    }
+}
@@ -0,0 +1,141 @@
+package gitlet;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/** The branches of a repository and the name of the current branch,
+ *  persisted in .gitlet/refs apart from the staging area and the commit
+ *  list, so that ref updates never rewrite either of those.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Refs implements Serializable {
+    /** Pinned to the value computed before read and write were added, so
+     *  that existing refs can still be read. */
+    private static final long serialVersionUID = -8805270301781017435L;
+
+    /** Constructor for the refs of a new repository. */
+    Refs() {
+        _branches = new HashMap<String, String>();
+    }
+
+    /** current branch. */
+    public String current_branch_name;
+
+    /** Maps the name to the head commit SHA-1 ID of the branch. */
+    public HashMap<String, String> _branches;
+
+    /** Returns the refs file of the repository in the current
+     *  directory. */
+    static File refsFile() {
+        return new File(System.getProperty("user.dir") + "/.gitlet/refs");
+    }
+
+    /** Moves the branches and the commit list of a repository made before
+     *  they were kept apart from the staging area out of its staging area,
+     *  into the refs file and the commit journal. Does nothing if the refs
+     *  file exists, which it does in every repository made or migrated
+     *  since. The old staging area is first renamed to staged.legacy, and
+     *  the refs file is written last, so a migration that is interrupted
+     *  is simply redone from staged.legacy on the next run. */
+    static void migrate() {
+        File refsFile = refsFile();
+        if (refsFile.exists()) {
+            return;
+        }
+        File stagedFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/staged");
+        File legacyFile = new File(System.getProperty("user.dir")
+                + "/.gitlet/staged.legacy");
+        if (!legacyFile.isFile()) {
+            if (!stagedFile.isFile()) {
+                throw Utils.error(
+                        "Corrupt repository: no refs or staging area.");
+            }
+            if (!stagedFile.renameTo(legacyFile)) {
+                throw Utils.error("Cannot move the staging area aside.");
+            }
+        }
+        LegacyStage legacy = LegacyStage.read(legacyFile);
+        if (legacy._branches == null || legacy._commitList == null
+                || legacy._commitList.isEmpty()) {
+            throw Utils.error("Corrupt repository: no refs.");
+        }
+        Refs refs = new Refs();
+        refs._branches.putAll(legacy._branches);
+        refs.current_branch_name = legacy.current_branch_name;
+        Stage staged = new Stage();
+        staged._stagingMap.putAll(legacy._stagingMap);
+        staged._stagingRemove.addAll(legacy._stagingRemove);
+        CommitList.init(legacy._commitList);
+        staged.write(stagedFile);
+        refs.write(refsFile);
+        legacyFile.delete();
+    }
+
+    /** The staging area as written before the refs and the commit list
+     *  were kept apart from it, which held them both. */
+    private static class LegacyStage implements Serializable {
+        /** The value computed for Stage when it had these fields. */
+        private static final long serialVersionUID = 3043221912863266698L;
+
+        /** current branch. */
+        public String current_branch_name;
+
+        /** Maps the name to the head commit SHA-1 ID of the branch. */
+        public HashMap<String, String> _branches;
+
+        /** HashMap of all staged files. */
+        public HashMap<String, String> _stagingMap;
+
+        /** Arraylist of filenames that you want to remove. */
+        public ArrayList<String> _stagingRemove;
+
+        /** Arraylist of all committed SHA-1 IDs. */
+        public ArrayList<String> _commitList;
+
+        /** Returns the legacy staging area in FILE, which was written as
+         *  a Stage. */
+        static LegacyStage read(File file) {
+            try (ObjectInputStream in = new ObjectInputStream(
+                    new FileInputStream(file)) {
+                    @Override
+                    protected ObjectStreamClass readClassDescriptor()
+                            throws IOException, ClassNotFoundException {
+                        ObjectStreamClass desc = super.readClassDescriptor();
+                        if (desc.getName().equals(Stage.class.getName())) {
+                            return ObjectStreamClass.lookup(LegacyStage.class);
+                        }
+                        return desc;
+                    }
+                }) {
+                return (LegacyStage) in.readObject();
+            } catch (IOException | ClassCastException
+                     | ClassNotFoundException excp) {
+                throw Utils.error("Corrupt repository: cannot read the "
+                        + "staging area (%s).", excp.getMessage());
+            }
+        }
+    }
+
+    /** Return the refs stored in FILE, through the ObjectCache. */
+    static Refs read(File file) {
+        return ObjectCache.read(file, Refs.class,
+            f -> Utils.readObject(f, Refs.class));
+    }
+
+    /** Write these refs to FILE, replacing it in one step. */
+    void write(File file) {
+        ObjectCache.write(file, this,
+            f -> LooseObjectStore.writeAtomically(f, Utils.serialize(this)));
+    }
+
+    /** Return the SHA-1 ID of the head commit of the current branch. */
+    String headSha() {
+        return _branches.get(current_branch_name);
+    }
+}
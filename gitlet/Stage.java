@@ -1,23 +1,21 @@
 package gitlet;
+import java.io.File;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.ArrayList;
 
+/** The staging area, persisted in .gitlet/staged. Branches live in Refs
+ *  and the list of commits in CommitList. */
 class Stage implements Serializable {
+    /** Pinned to the value computed before read and write were added, so
+     *  that existing staging areas can still be read. */
+    private static final long serialVersionUID = -7392052542488832249L;
 
     /** Constructor for staging area. */
     Stage() {
         _stagingMap = new HashMap<String, String>();
         _stagingRemove = new ArrayList<String>();
-        _commitList = new ArrayList<String>();
-        _branches = new HashMap<String, String>();
-
     }
-    /** current branch. */
-    public String current_branch_name;
-
-    /** Maps the name to the head commit SHA-1 ID of the branch. */
-    public HashMap<String, String> _branches = new HashMap<String, String>();
 
     /** HashMap of all staged files. */
     public HashMap<String, String> _stagingMap;
@@ -25,7 +23,15 @@ class Stage implements Serializable {
     /** Arraylist of filenames that you want to remove. */
     public ArrayList<String> _stagingRemove;
 
-    /** Arraylist of all committed SHA-1 IDs. */
-    public ArrayList<String> _commitList;
+    /** Return the staging area stored in FILE, through the ObjectCache. */
+    static Stage read(File file) {
+        return ObjectCache.read(file, Stage.class,
+            f -> Utils.readObject(f, Stage.class));
+    }
+
+    /** Write this staging area to FILE. */
+    void write(File file) {
+        ObjectCache.write(file, this, f -> Utils.writeObject(f, this));
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/** A persistent cache of the SHA-1 of working files, keyed by path and
+ *  validated by the file's modification time, size and inode, in the
+ *  manner of git's index. A file whose stat data matches its entry is not
+ *  read again; its cached SHA-1 is reused.
+ *
+ *  An entry is only trusted if the file was last modified strictly before
+ *  the cache itself was written. Otherwise the file could have changed
+ *  again within the timestamp granularity of the file system without its
+ *  stat data changing ("racily clean"), so it is hashed again.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class StatCache {
+
+    /** Magic number at the start of the cache file ("GSTC"). */
+    static final int MAGIC = 0x47535443;
+
+    /** Version of the cache layout. */
+    static final int VERSION = 1;
+
+    /** Name of the counter of files whose cached SHA-1 was reused. */
+    static final String HITS = "stat-cache-hits";
+
+    /** Name of the counter of files that had to be hashed. */
+    static final String MISSES = "stat-cache-misses";
+
+    /** The stat data and SHA-1 of one working file. */
+    private static class Entry {
+        /** Modification time in nanoseconds. */
+        private long mtime;
+        /** Size in bytes. */
+        private long size;
+        /** Inode number, or 0 where the file system has none. */
+        private long inode;
+        /** SHA-1 of the contents. */
+        private String sha;
+
+        /** True if this entry has the same stat data as OTHER. */
+        boolean sameStat(Entry other) {
+            return mtime == other.mtime && size == other.size
+                && inode == other.inode;
+        }
+    }
+
+    /** Entries by path. */
+    private final HashMap<String, Entry> _entries =
+        new HashMap<String, Entry>();
+
+    /** Modification time in nanoseconds of the cache file when loaded or
+     *  last written. */
+    private long _written;
+
+    /** True if entries changed since the cache was loaded. */
+    private boolean _dirty;
+
+    /** Returns the cache file. */
+    static File cacheFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/stat-cache");
+    }
+
+    /** Returns the stat cache of the current repository, which is empty if
+     *  there is none yet or it cannot be read. The cache is kept in the
+     *  ObjectCache between loads. */
+    static StatCache load() {
+        return ObjectCache.read(cacheFile(), StatCache.class,
+            StatCache::decode);
+    }
+
+    /** Returns the stat cache stored in FILE, which is empty if there is
+     *  none or it cannot be read. */
+    private static StatCache decode(File file) {
+        StatCache cache = new StatCache();
+        if (!file.isFile()) {
+            return cache;
+        }
+        try {
+            cache._written = Files.getLastModifiedTime(file.toPath())
+                .to(TimeUnit.NANOSECONDS);
+            ByteBuffer in = ByteBuffer.wrap(Utils.readContents(file));
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return new StatCache();
+            }
+            int count = in.getInt();
+            for (int i = 0; i < count; i += 1) {
+                String path = CommitCodec.readString(in);
+                Entry e = new Entry();
+                e.mtime = in.getLong();
+                e.size = in.getLong();
+                e.inode = in.getLong();
+                e.sha = CommitCodec.readSha(in);
+                cache._entries.put(path, e);
+            }
+        } catch (IOException | RuntimeException excp) {
+            return new StatCache();
+        }
+        return cache;
+    }
+
+    /** Writes the cache back if any entry changed. */
+    synchronized void save() {
+        if (!_dirty) {
+            return;
+        }
+        ObjectCache.write(cacheFile(), this, this::writeTo);
+        _dirty = false;
+    }
+
+    /** Writes the cache to FILE. */
+    private void writeTo(File file) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putInt(MAGIC).putInt(VERSION).putInt(_entries.size());
+        out.write(header.array(), 0, 12);
+        ByteBuffer stat = ByteBuffer.allocate(24);
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            CommitCodec.writeString(out, e.getKey());
+            stat.clear();
+            stat.putLong(e.getValue().mtime).putLong(e.getValue().size)
+                .putLong(e.getValue().inode);
+            out.write(stat.array(), 0, 24);
+            CommitCodec.writeSha(out, e.getValue().sha);
+        }
+        Utils.writeContents(file, (Object) out.toByteArray());
+        try {
+            _written = Files.getLastModifiedTime(file.toPath())
+                .to(TimeUnit.NANOSECONDS);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the SHA-1 of the contents of the working file PATH, which
+     *  must exist, reusing the cached value if its stat data is unchanged
+     *  and hashing it otherwise. May be called from several threads at
+     *  once; files are hashed outside the lock. */
+    String hash(String path) {
+        return hash(path, BlobStore::hash);
+    }
+
+    /** As for hash(PATH), but a file whose cached value cannot be reused
+     *  is passed to READ, which returns the SHA-1 of its contents, so that
+     *  a caller can do more with them in the same pass. */
+    String hash(String path, Function<File, String> read) {
+        Entry now = stat(new File(path));
+        synchronized (this) {
+            Entry cached = _entries.get(path);
+            if (cached != null && cached.sameStat(now)
+                    && now.mtime < _written) {
+                Stats.add(HITS, 1);
+                return cached.sha;
+            }
+        }
+        Stats.add(MISSES, 1);
+        now.sha = read.apply(new File(path));
+        synchronized (this) {
+            _entries.put(path, now);
+            _dirty = true;
+        }
+        return now.sha;
+    }
+
+    /** Records that the working file PATH, which must exist, has contents
+     *  with SHA-1 ID SHA, as after it was written by a checkout. */
+    synchronized void record(String path, String sha) {
+        Entry now = stat(new File(path));
+        now.sha = sha;
+        _entries.put(path, now);
+        _dirty = true;
+    }
+
+    /** Forgets the working file PATH. */
+    synchronized void forget(String path) {
+        if (_entries.remove(path) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Returns an entry holding the stat data of FILE. */
+    private static Entry stat(File file) {
+        Path path = file.toPath();
+        Entry e = new Entry();
+        try {
+            try {
+                Map<String, Object> attrs = Files.readAttributes(path,
+                        "unix:lastModifiedTime,size,ino",
+                        LinkOption.NOFOLLOW_LINKS);
+                e.mtime = ((FileTime) attrs.get("lastModifiedTime"))
+                    .to(TimeUnit.NANOSECONDS);
+                e.size = (Long) attrs.get("size");
+                e.inode = (Long) attrs.get("ino");
+            } catch (UnsupportedOperationException
+                     | IllegalArgumentException excp) {
+                e.mtime = Files.getLastModifiedTime(path)
+                    .to(TimeUnit.NANOSECONDS);
+                e.size = Files.size(path);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return e;
+    }
+}
@@ -0,0 +1,123 @@
+package gitlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/** Named counters describing the work done by gitlet commands, such as
+ *  the number of bytes of writes avoided. Counters are kept in memory while
+ *  a command runs and are otherwise dropped, so that commands write
+ *  nothing for them, unless the system property gitlet.stats is set. Then
+ *  the counters of each command are printed on the standard error and
+ *  added to the running totals in .gitlet/stats, a plain properties
+ *  file.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Stats {
+
+    /** Counters changed by the current command, by name. */
+    private static final TreeMap<String, Long> COUNTS =
+        new TreeMap<String, Long>();
+
+    /** Adds DELTA to the counter NAME. */
+    static synchronized void add(String name, long delta) {
+        Long old = COUNTS.get(name);
+        COUNTS.put(name, (old == null ? 0 : old) + delta);
+    }
+
+    /** Returns the value of the counter NAME for the current command. */
+    static synchronized long get(String name) {
+        Long val = COUNTS.get(name);
+        return val == null ? 0 : val;
+    }
+
+    /** Returns the file holding the running totals. */
+    static File statsFile() {
+        return new File(System.getProperty("user.dir")
+                + "/.gitlet/stats");
+    }
+
+    /** Counters of earlier commands not yet added to the running totals,
+     *  by name. */
+    private static final TreeMap<String, Long> PENDING =
+        new TreeMap<String, Long>();
+
+    /** Least number of milliseconds between writes of the running totals
+     *  while writes are deferred. */
+    static final long DEFER_MILLIS = 5000;
+
+    /** True if the running totals are only written every DEFER_MILLIS, as
+     *  in a daemon serving many commands. */
+    private static boolean _deferred;
+
+    /** Time of the last write of the running totals. */
+    private static long _persisted;
+
+    /** Writes the running totals at most every DEFER_MILLIS from now on,
+     *  rather than after every command. */
+    static synchronized void defer() {
+        _deferred = true;
+        _persisted = System.currentTimeMillis();
+    }
+
+    /** Reports the counters of the current command and adds them to the
+     *  running totals if gitlet.stats is set, and resets them. */
+    static synchronized void flush() {
+        if (COUNTS.isEmpty()) {
+            return;
+        } else if (System.getProperty("gitlet.stats") == null) {
+            COUNTS.clear();
+            return;
+        }
+        for (Map.Entry<String, Long> e : COUNTS.entrySet()) {
+            System.err.printf("%s: %d%n", e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, Long> e : COUNTS.entrySet()) {
+            Long old = PENDING.get(e.getKey());
+            PENDING.put(e.getKey(), (old == null ? 0 : old) + e.getValue());
+        }
+        COUNTS.clear();
+        if (!_deferred
+                || System.currentTimeMillis() - _persisted >= DEFER_MILLIS) {
+            persist();
+        }
+    }
+
+    /** Adds the counters of earlier commands to the running totals in the
+     *  stats file. */
+    static synchronized void persist() {
+        _persisted = System.currentTimeMillis();
+        if (PENDING.isEmpty()) {
+            return;
+        }
+        File file = statsFile();
+        if (file.getParentFile().isDirectory()) {
+            Properties totals = new Properties();
+            try {
+                if (file.exists()) {
+                    try (InputStream in = new FileInputStream(file)) {
+                        totals.load(in);
+                    }
+                }
+                for (Map.Entry<String, Long> e : PENDING.entrySet()) {
+                    long old = Long.parseLong(
+                            totals.getProperty(e.getKey(), "0"));
+                    totals.setProperty(e.getKey(),
+                            Long.toString(old + e.getValue()));
+                }
+                try (OutputStream out = new FileOutputStream(file)) {
+                    totals.store(out, "gitlet counters");
+                }
+            } catch (IOException | NumberFormatException excp) {
+                /* Counters are advisory; never fail a command over them. */
+            }
+        }
+        PENDING.clear();
+    }
+}
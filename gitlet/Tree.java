@@ -0,0 +1,326 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** A content-addressed directory listing, stored in .gitlet/objects under
+ *  the SHA-1 of its encoding. Each entry names either a blob or another
+ *  tree, so a commit only needs to point at its root tree. Subtrees that
+ *  did not change between two commits have the same SHA-1 and are shared,
+ *  and comparisons can skip them without reading them.
+ *
+ *  Paths are relative to the working directory, with components separated
+ *  by '/'.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class Tree {
+
+    /** Magic number at the start of an encoded tree ("GTRE"). */
+    static final int MAGIC = 0x47545245;
+
+    /** Current version of the encoding. */
+    static final int VERSION = 1;
+
+    /** Type byte of an entry naming a blob. */
+    private static final int BLOB = 0;
+
+    /** Type byte of an entry naming a tree. */
+    private static final int TREE = 1;
+
+    /** One entry of a tree. */
+    private static class Entry {
+        /** An entry naming the object SHA, which is a tree iff ISTREE. */
+        Entry(boolean isTree, String sha) {
+            this.isTree = isTree;
+            this.sha = sha;
+        }
+
+        /** True if this entry names a tree rather than a blob. */
+        private final boolean isTree;
+
+        /** SHA-1 ID of the named object. */
+        private final String sha;
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Entry && ((Entry) obj).isTree == isTree
+                && ((Entry) obj).sha.equals(sha);
+        }
+
+        @Override
+        public int hashCode() {
+            return sha.hashCode();
+        }
+    }
+
+    /** The entries of this tree, sorted by name. */
+    private final TreeMap<String, Entry> _entries =
+        new TreeMap<String, Entry>();
+
+    /** The SHA-1 ID of the empty tree. */
+    static final String EMPTY = new Tree().sha();
+
+    /** Returns the tree stored under SHA. */
+    static Tree read(String sha) {
+        ByteBuffer in = ByteBuffer.wrap(ObjectStore.current().get(sha));
+        if (in.getInt() != MAGIC) {
+            throw Utils.error("Corrupt tree object %s.", sha);
+        }
+        long version = CommitCodec.readVarint(in);
+        if (version != VERSION) {
+            throw Utils.error("Unknown tree format version %d.", version);
+        }
+        Tree tree = new Tree();
+        int count = (int) CommitCodec.readVarint(in);
+        for (int i = 0; i < count; i += 1) {
+            boolean isTree = in.get() == TREE;
+            String name = CommitCodec.readString(in);
+            tree._entries.put(name, new Entry(isTree,
+                    CommitCodec.readSha(in)));
+        }
+        return tree;
+    }
+
+    /** Returns the encoding of this tree. */
+    private byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+        out.write(header.array(), 0, 4);
+        CommitCodec.writeVarint(out, VERSION);
+        CommitCodec.writeVarint(out, _entries.size());
+        for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+            out.write(e.getValue().isTree ? TREE : BLOB);
+            CommitCodec.writeString(out, e.getKey());
+            CommitCodec.writeSha(out, e.getValue().sha);
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the SHA-1 ID of this tree. */
+    String sha() {
+        return Utils.sha1(encode());
+    }
+
+    /** Stores this tree unless an identical one is already stored, and
+     *  returns its SHA-1 ID. */
+    String write() {
+        byte[] data = encode();
+        String sha = Utils.sha1(data);
+        ObjectStore.current().put(sha, data);
+        return sha;
+    }
+
+    /** Stores the trees for the files in FILES, which maps paths to blob
+     *  SHA-1 IDs, and returns the SHA-1 ID of the root tree. */
+    static String build(Map<String, String> files) {
+        return update(null, files, Collections.<String>emptyList());
+    }
+
+    /** Returns the SHA-1 ID of the root tree obtained from the tree ROOT by
+     *  setting each path in PUTS to its blob SHA-1 ID and removing each
+     *  path in REMOVES, storing the trees that change. Subtrees containing
+     *  no changed path are reused as they are. */
+    static String update(String root, Map<String, String> puts,
+                         Collection<String> removes) {
+        String sha = updateSubtree(root, puts, removes);
+        if (sha == null) {
+            return new Tree().write();
+        }
+        return sha;
+    }
+
+    /** As for update, but for the tree SHA (which is null if there is no
+     *  such tree yet), returning null if the result is empty. */
+    private static String updateSubtree(String sha, Map<String, String> puts,
+                                        Collection<String> removes) {
+        if (puts.isEmpty() && removes.isEmpty()) {
+            return sha;
+        }
+        Tree tree = sha == null ? new Tree() : read(sha);
+        TreeMap<String, Map<String, String>> childPuts =
+            new TreeMap<String, Map<String, String>>();
+        TreeMap<String, List<String>> childRemoves =
+            new TreeMap<String, List<String>>();
+
+        for (Map.Entry<String, String> put : puts.entrySet()) {
+            String path = put.getKey();
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                tree._entries.put(path, new Entry(false, put.getValue()));
+            } else {
+                String child = path.substring(0, slash);
+                if (!childPuts.containsKey(child)) {
+                    childPuts.put(child, new HashMap<String, String>());
+                }
+                childPuts.get(child).put(path.substring(slash + 1),
+                        put.getValue());
+            }
+        }
+        for (String path : removes) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                Entry e = tree._entries.get(path);
+                if (e != null && !e.isTree && !puts.containsKey(path)) {
+                    tree._entries.remove(path);
+                }
+            } else {
+                String child = path.substring(0, slash);
+                if (!childRemoves.containsKey(child)) {
+                    childRemoves.put(child, new ArrayList<String>());
+                }
+                childRemoves.get(child).add(path.substring(slash + 1));
+            }
+        }
+
+        Set<String> children = new TreeSet<String>(childPuts.keySet());
+        children.addAll(childRemoves.keySet());
+        for (String child : children) {
+            Entry e = tree._entries.get(child);
+            String childSha = updateSubtree(
+                    e != null && e.isTree ? e.sha : null,
+                    childPuts.containsKey(child)
+                        ? childPuts.get(child)
+                        : Collections.<String, String>emptyMap(),
+                    childRemoves.containsKey(child)
+                        ? childRemoves.get(child)
+                        : Collections.<String>emptyList());
+            if (childSha != null) {
+                tree._entries.put(child, new Entry(true, childSha));
+            } else if (e != null && e.isTree) {
+                tree._entries.remove(child);
+            }
+        }
+        if (tree._entries.isEmpty()) {
+            return null;
+        }
+        return tree.write();
+    }
+
+    /** Returns a map from every path in the tree ROOT to its blob
+     *  SHA-1 ID. */
+    static HashMap<String, String> flatten(String root) {
+        HashMap<String, String> files = new HashMap<String, String>();
+        flatten(root, "", files);
+        return files;
+    }
+
+    /** Adds the paths of the tree SHA to FILES, each preceded by PREFIX. */
+    private static void flatten(String sha, String prefix,
+                                Map<String, String> files) {
+        for (Map.Entry<String, Entry> e : read(sha)._entries.entrySet()) {
+            if (e.getValue().isTree) {
+                flatten(e.getValue().sha, prefix + e.getKey() + "/", files);
+            } else {
+                files.put(prefix + e.getKey(), e.getValue().sha);
+            }
+        }
+    }
+
+    /** Returns the blob SHA-1 ID of PATH in the tree ROOT, or null if the
+     *  tree has no such file. Only the subtrees along PATH are read. */
+    static String lookup(String root, String path) {
+        String sha = root;
+        String[] names = path.split("/");
+        for (int i = 0; i < names.length; i += 1) {
+            Entry e = read(sha)._entries.get(names[i]);
+            if (e == null || e.isTree != (i < names.length - 1)) {
+                return null;
+            }
+            sha = e.sha;
+        }
+        return sha;
+    }
+
+    /** Returns a map from each of PATHS that is a file in the tree ROOT to
+     *  its blob SHA-1 ID. Each subtree along the paths is read once, and
+     *  no other subtree is read. */
+    static HashMap<String, String> lookup(String root,
+                                          Collection<String> paths) {
+        HashMap<String, String> found = new HashMap<String, String>();
+        if (!paths.isEmpty()) {
+            lookup(root, "", paths, found);
+        }
+        return found;
+    }
+
+    /** Adds to FOUND each of PATHS, relative to the tree SHA, that is a
+     *  file in it, preceded by PREFIX. */
+    private static void lookup(String sha, String prefix,
+                               Collection<String> paths,
+                               Map<String, String> found) {
+        Tree tree = read(sha);
+        TreeMap<String, List<String>> children =
+            new TreeMap<String, List<String>>();
+        for (String path : paths) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                Entry e = tree._entries.get(path);
+                if (e != null && !e.isTree) {
+                    found.put(prefix + path, e.sha);
+                }
+            } else {
+                String child = path.substring(0, slash);
+                if (!children.containsKey(child)) {
+                    children.put(child, new ArrayList<String>());
+                }
+                children.get(child).add(path.substring(slash + 1));
+            }
+        }
+        for (Map.Entry<String, List<String>> c : children.entrySet()) {
+            Entry e = tree._entries.get(c.getKey());
+            if (e != null && e.isTree) {
+                lookup(e.sha, prefix + c.getKey() + "/", c.getValue(),
+                       found);
+            }
+        }
+    }
+
+    /** Returns the paths whose blob SHA-1 IDs differ between the trees A
+     *  and B, including paths present in only one of them. Subtrees with
+     *  equal SHA-1 IDs are not read. */
+    static Set<String> diff(String a, String b) {
+        Set<String> paths = new TreeSet<String>();
+        diff(a, b, "", paths);
+        return paths;
+    }
+
+    /** Adds the paths that differ between the trees A and B, either of
+     *  which may be null, to PATHS, each preceded by PREFIX. */
+    private static void diff(String a, String b, String prefix,
+                             Set<String> paths) {
+        if (a != null && a.equals(b)) {
+            return;
+        }
+        TreeMap<String, Entry> ea = a == null
+            ? new TreeMap<String, Entry>() : read(a)._entries;
+        TreeMap<String, Entry> eb = b == null
+            ? new TreeMap<String, Entry>() : read(b)._entries;
+        Set<String> names = new TreeSet<String>(ea.keySet());
+        names.addAll(eb.keySet());
+        for (String name : names) {
+            Entry x = ea.get(name);
+            Entry y = eb.get(name);
+            if (x != null && x.equals(y)) {
+                continue;
+            }
+            String path = prefix + name;
+            String xTree = x != null && x.isTree ? x.sha : null;
+            String yTree = y != null && y.isTree ? y.sha : null;
+            if (xTree != null || yTree != null) {
+                diff(xTree, yTree, path + "/", paths);
+            }
+            if ((x != null && !x.isTree) || (y != null && !y.isTree)) {
+                paths.add(path);
+            }
+        }
+    }
+}
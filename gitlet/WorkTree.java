@@ -0,0 +1,140 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** Materializes the files of a commit in the working directory in bulk,
+ *  for checkout of a branch and reset. The target commit is loaded once,
+ *  the files to delete and to write are computed up front, and blobs are
+ *  then copied in parallel on a bounded pool of threads. Paths whose blobs
+ *  differ between the two commits are always written or deleted; a path
+ *  with the same blob in both is only written if its working file is
+ *  missing or its contents, checked through the StatCache, differ. The
+ *  numbers of files written and deleted go to the WRITTEN and DELETED
+ *  counters, which are reported with -Dgitlet.stats.
+ *  @author Judy Moon, Jiaming Yuan, Maoqi Zhang
+ */
+class WorkTree {
+
+    /** Largest number of threads used to copy blobs. */
+    static final int MAX_THREADS = 8;
+
+    /** Name of the counter of working files written. */
+    static final String WRITTEN = "checkout-files-written";
+
+    /** Name of the counter of working files deleted. */
+    static final String DELETED = "checkout-files-deleted";
+
+    /** Replaces the files tracked by FROM in the working directory with
+     *  those tracked by TO: files tracked only by FROM are deleted, and files
+     *  whose blob differs, that only TO tracks, or whose working copy does
+     *  not match TO, are written. The number of files written and deleted
+     *  is added to the WRITTEN and DELETED counters. */
+    static void materialize(Commit from, Commit to) {
+        HashMap<String, String> target = to.getBlobs();
+        List<String> deletes = new ArrayList<String>();
+        HashMap<String, String> writes = new HashMap<String, String>();
+        HashSet<String> changed =
+            new HashSet<String>(Tree.diff(from.getTree(), to.getTree()));
+        for (String path : changed) {
+            if (target.containsKey(path)) {
+                writes.put(path, target.get(path));
+            } else {
+                deletes.add(path);
+            }
+        }
+
+        StatCache cache = StatCache.load();
+        for (Map.Entry<String, String> e : target.entrySet()) {
+            String path = e.getKey();
+            if (!changed.contains(path) && (!new File(path).isFile()
+                    || !cache.hash(path).equals(e.getValue()))) {
+                writes.put(path, e.getValue());
+            }
+        }
+        for (String path : deletes) {
+            delete(path);
+            cache.forget(path);
+        }
+        write(writes);
+        for (Map.Entry<String, String> e : writes.entrySet()) {
+            cache.record(e.getKey(), e.getValue());
+        }
+        cache.save();
+        Stats.add(WRITTEN, writes.size());
+        Stats.add(DELETED, deletes.size());
+    }
+
+    /** Writes each path in FILES from the blob it maps to, in parallel. */
+    private static void write(Map<String, String> files) {
+        int threads = Math.max(1, Math.min(MAX_THREADS,
+                Math.min(files.size(),
+                        Runtime.getRuntime().availableProcessors())));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> copies = new ArrayList<Future<?>>();
+            for (final Map.Entry<String, String> e : files.entrySet()) {
+                copies.add(pool.submit(() -> {
+                    copyBlob(e.getValue(), new File(e.getKey()));
+                    return null;
+                }));
+            }
+            for (Future<?> copy : copies) {
+                copy.get();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (ExecutionException excp) {
+            throw new IllegalArgumentException(excp.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Replaces the working file DEST with the contents of the blob
+     *  BLOB. */
+    static void copyBlob(String blob, File dest) throws IOException {
+        makeParents(dest);
+        ObjectStore.current().copyTo(blob, dest);
+    }
+
+    /** Creates the directories holding the working file FILE, if they do
+     *  not exist. */
+    static void makeParents(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory()) {
+            Files.createDirectories(dir.toPath());
+        }
+    }
+
+    /** Deletes the working file PATH. Files at the top of the working
+     *  directory go through Utils.restrictedDelete; nested ones are
+     *  deleted directly, and then the directories holding them that are
+     *  left empty. */
+    static void delete(String path) {
+        if (path.indexOf('/') < 0) {
+            Utils.restrictedDelete(path);
+            return;
+        }
+        try {
+            Files.deleteIfExists(new File(path).toPath());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        File dir = new File(path).getParentFile();
+        while (dir != null && dir.delete()) {
+            dir = dir.getParentFile();
+        }
+    }
+}